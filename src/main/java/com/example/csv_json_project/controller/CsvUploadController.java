@@ -1,62 +1,115 @@
 package com.example.csv_json_project.controller;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import com.example.csv_json_project.services.CsvProcessorService;
+import com.example.csv_json_project.services.CsvJob;
+import com.example.csv_json_project.services.CsvJobService;
+import com.example.csv_json_project.services.JobEventPublisher;
 
 import java.io.IOException;
+import java.net.URI;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/csv")
 public class CsvUploadController {
 
-    public CsvUploadController(CsvProcessorService csvProcessorService) {
+    public CsvUploadController(CsvJobService csvJobService) {
 		super();
-		this.csvProcessorService = csvProcessorService;
+		this.csvJobService = csvJobService;
 	}
 
 	@Autowired
-    private CsvProcessorService csvProcessorService;
+    private CsvJobService csvJobService;
 
+    @Autowired
+    private JobEventPublisher jobEventPublisher;
+
+    @Value("${csv.upload.spool-dir:}")
+    private String spoolDir;
+
+    // Returns 202 with the job's status as soon as the uploads are spooled; poll the Location for progress.
+    // engine optionally picks how the rows are saved: row, jpa-batch or h2-bulk
     @PostMapping("/upload")
-    public ResponseEntity<String> uploadCsvFiles(@RequestParam("accountFile") MultipartFile accountFile,
-                                                 @RequestParam("customerFile") MultipartFile customerFile) {
+    public ResponseEntity<?> uploadCsvFiles(@RequestParam("accountFile") MultipartFile accountFile,
+                                            @RequestParam("customerFile") MultipartFile customerFile,
+                                            @RequestParam(value = "engine", required = false) String engine) {
         try {
-            // Save the uploaded files to temporary locations
-            Path accountFilePath = saveUploadedFile(accountFile);
-            Path customerFilePath = saveUploadedFile(customerFile);
-
-            // Process the CSV files
-            csvProcessorService.processCsvFiles(accountFilePath.toString(), customerFilePath.toString());
+            checkNotEmpty(accountFile);
+            checkNotEmpty(customerFile);
+            csvJobService.checkPersistenceEngine(engine);
 
-            // Clean up the temporary files
-            Files.deleteIfExists(accountFilePath);
-            Files.deleteIfExists(customerFilePath);
+            // The job outlives the request, so the uploads are always moved into the spool area
+            // (a rename when the container already buffered them on disk); the job deletes them when done
+            Path accountFilePath = saveUploadedFile(accountFile);
+            Path customerFilePath;
+            try {
+                customerFilePath = saveUploadedFile(customerFile);
+            } catch (IOException e) {
+                Files.deleteIfExists(accountFilePath);
+                throw e;
+            }
 
-            return ResponseEntity.ok("CSV files processed successfully.");
+            CsvJob job = csvJobService.submit(accountFilePath, customerFilePath, engine);
+            return ResponseEntity.accepted().location(URI.create("/api/csv/jobs/" + job.id())).body(job.status());
+        } catch (IllegalArgumentException e) {
+            // An empty file or an unknown engine is the client's mistake
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(e.getMessage());
         } catch (IOException e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error processing CSV files: " + e.getMessage());
         }
     }
 
+    // State, rows per stage, error count and throughput of a job
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<CsvJob.Status> getJob(@PathVariable("id") String id) {
+        return csvJobService.find(id)
+                .map(job -> ResponseEntity.ok(job.status()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    // Server-Sent Events: the job's status every csv.jobs.events-interval-ms until it finishes
+    @GetMapping(path = "/jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamJobEvents(@PathVariable("id") String id) {
+        return csvJobService.find(id)
+                .map(job -> ResponseEntity.ok(jobEventPublisher.subscribe(job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     public Path saveUploadedFile(MultipartFile file) throws IOException {
+        checkNotEmpty(file);
+
+        // transferTo(File) lets the container move its own spooled copy instead of copying the bytes again
+        Path spoolFile = spoolDirectory().resolve("uploaded-" + UUID.randomUUID() + ".csv");
+        file.transferTo(spoolFile.toFile());
+
+        return spoolFile;
+    }
+
+    private void checkNotEmpty(MultipartFile file) {
         if (file.isEmpty()) {
             throw new IllegalArgumentException("Uploaded file is empty.");
         }
+    }
 
-        // Create a temporary file
-        Path tempFile = Files.createTempFile("uploaded-", ".csv");
-        Files.write(tempFile, file.getBytes());
-
-        return tempFile;
+    private Path spoolDirectory() throws IOException {
+        Path directory = spoolDir == null || spoolDir.isBlank()
+                ? Path.of(System.getProperty("java.io.tmpdir"), "csv-upload-spool")
+                : Path.of(spoolDir);
+        return Files.createDirectories(directory);
     }
 }
\ No newline at end of file
@@ -0,0 +1,165 @@
+package com.example.csv_json_project.exporters;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+// Streams the error records of one job into a JSON array file. Workers hand over batches of
+// records and a dedicated thread serializes every record exactly once as it arrives. The array
+// goes to a temporary file next to the target, which is moved into place on close, so jobs
+// running at the same time never interleave and nobody reads a half-written file.
+public class ErrorLogWriter implements Closeable {
+
+    private static final int QUEUE_CAPACITY = 1024;
+
+    private static final Logger logger = LoggerFactory.getLogger(ErrorLogWriter.class);
+
+    private final List<Map<String, String>> end = new ArrayList<>(); // Marks the end of the queue
+    private final BlockingQueue<List<Map<String, String>>> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final LongAdder written = new LongAdder();
+    private final Path target;
+    private final Path tempFile;
+    private final Thread writerThread;
+    private volatile IOException failure;
+    private volatile boolean closed;
+
+    public ErrorLogWriter(Path target) throws IOException {
+        this.target = target.toAbsolutePath();
+        Files.createDirectories(this.target.getParent());
+        this.tempFile = Files.createTempFile(this.target.getParent(), this.target.getFileName() + ".", ".tmp");
+
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.enable(SerializationFeature.INDENT_OUTPUT); // Enable pretty print
+        SequenceWriter out = objectMapper.writer().writeValuesAsArray(Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8));
+
+        this.writerThread = new Thread(() -> drain(out), "csv-error-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    // Queue the records for writing; blocks only while the writer is QUEUE_CAPACITY batches behind
+    public void write(List<Map<String, String>> errors) {
+        if (errors.isEmpty()) {
+            return;
+        }
+        if (closed) {
+            throw new IllegalStateException("Error log is closed");
+        }
+        putUninterruptibly(errors);
+    }
+
+    // Records written to the file so far
+    public long written() {
+        return written.sum();
+    }
+
+    // Write the remaining records, finish the array and move the file into place
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        putUninterruptibly(end);
+        joinWriter();
+
+        if (failure != null) {
+            Files.deleteIfExists(tempFile);
+            throw new IOException("Error writing error log " + target, failure);
+        }
+        try {
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        logger.info("{} errors saved to {}", written(), target);
+    }
+
+    private void drain(SequenceWriter out) {
+        while (true) {
+            List<Map<String, String>> errors = takeUninterruptibly();
+            if (errors == end) {
+                break;
+            }
+            if (failure != null) {
+                continue; // Keep draining so workers never block on a dead writer
+            }
+            try {
+                for (Map<String, String> error : errors) {
+                    out.write(error);
+                    written.increment();
+                }
+                if (queue.isEmpty()) {
+                    out.flush();
+                }
+            } catch (IOException e) {
+                logger.error("Error writing error log {}", target, e);
+                failure = e;
+            }
+        }
+
+        try {
+            out.close(); // Closes the JSON array
+        } catch (IOException e) {
+            if (failure == null) {
+                failure = e;
+            }
+        }
+    }
+
+    private void putUninterruptibly(List<Map<String, String>> errors) {
+        boolean interrupted = false;
+        while (true) {
+            try {
+                queue.put(errors);
+                break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private List<Map<String, String>> takeUninterruptibly() {
+        while (true) {
+            try {
+                return queue.take();
+            } catch (InterruptedException e) {
+                // Only close() stops the writer
+            }
+        }
+    }
+
+    private void joinWriter() {
+        boolean interrupted = false;
+        while (writerThread.isAlive()) {
+            try {
+                writerThread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -9,6 +9,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
@@ -16,7 +17,11 @@ import jakarta.persistence.Temporal;
 import jakarta.persistence.TemporalType;
 
  @Entity
- @Table(name = "ACCOUNT")
+ @Table(name = "ACCOUNT", indexes = {
+         // The balance report filters on balance and joins the customer
+         @Index(name = "IDX_ACCOUNT_BALANCE", columnList = "balance"),
+         @Index(name = "IDX_ACCOUNT_CUSTOMER_ID", columnList = "customer_id")
+ })
  public class Account {
 	
     @Id
@@ -37,6 +42,15 @@ import jakarta.persistence.TemporalType;
     @JsonProperty("balance")
     private double balance; // Encrypted field
 
+    // Ciphertext of the account number and balance as uploaded, exported as is instead of encrypting again
+    @Column(name = "ENCRYPTED_ACCOUNT_NUMBER")
+    @JsonIgnore
+    private String encryptedAccountNumber;
+
+    @Column(name = "ENCRYPTED_BALANCE")
+    @JsonIgnore
+    private String encryptedBalance;
+
     
     public Account(String accountNumber, int accountType, double accountlimit, Date openDate, double balance,
 			Customer customer) {
@@ -99,6 +113,22 @@ import jakarta.persistence.TemporalType;
 		this.balance = balance;
 	}
 
+	public String getEncryptedAccountNumber() {
+		return encryptedAccountNumber;
+	}
+
+	public void setEncryptedAccountNumber(String encryptedAccountNumber) {
+		this.encryptedAccountNumber = encryptedAccountNumber;
+	}
+
+	public String getEncryptedBalance() {
+		return encryptedBalance;
+	}
+
+	public void setEncryptedBalance(String encryptedBalance) {
+		this.encryptedBalance = encryptedBalance;
+	}
+
 	public Customer getCustomer() {
 		return customer;
 	}
@@ -0,0 +1,12 @@
+package com.example.csv_json_project.model;
+
+import java.sql.Date;
+
+import com.example.csv_json_project.springSecurity.EncryptedField;
+
+// One exported account of the balance report with its customer, as selected by
+// AccountRepository.findBalanceReport; only the exported columns, no entities are loaded
+public record BalanceReportRow(Long customerId, EncryptedField name, EncryptedField surname, String nationalId,
+                               String accountNumber, String encryptedAccountNumber, Date openDate, double balance,
+                               String encryptedBalance) {
+}
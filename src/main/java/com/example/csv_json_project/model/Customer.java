@@ -4,7 +4,8 @@ import java.sql.Date;
 import java.util.List;
 import java.util.Objects;
 
-import com.example.csv_json_project.springSecurity.EncryptionUtil;
+import com.example.csv_json_project.springSecurity.EncryptedField;
+import com.example.csv_json_project.springSecurity.EncryptedFieldConverter;
 import com.fasterxml.jackson.annotation.JsonFormat;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonProperty;
@@ -12,6 +13,7 @@ import com.fasterxml.jackson.dataformat.xml.annotation.JacksonXmlProperty;
 
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
 import jakarta.persistence.Entity;
 import jakarta.persistence.FetchType;
 import jakarta.persistence.Id;
@@ -29,11 +31,14 @@ public class Customer {
     @JsonProperty("customer_id")
     private Long customer_Id;
 
+    // Stored as ciphertext and only decrypted when read, validation never needs them
+    @Convert(converter = EncryptedFieldConverter.class)
     @JsonProperty("name")
-    private String name; // Encrypted field
+    private EncryptedField name; // Encrypted field
 
+    @Convert(converter = EncryptedFieldConverter.class)
     @JsonProperty("surname")
-    private String surname; // Encrypted field
+    private EncryptedField surname; // Encrypted field
 
     @JsonProperty("address")
     private String address;
@@ -58,8 +63,8 @@ public class Customer {
                     Date birthDate, List<Account> accounts) {
         super();
         this.customer_Id = customer_Id;
-        this.name = name;
-        this.surname = surname;
+        this.name = EncryptedField.ofPlaintext(name);
+        this.surname = EncryptedField.ofPlaintext(surname);
         this.address = address;
         this.zipCode = zipCode;
         this.nationalId = nationalId;
@@ -79,18 +84,36 @@ public class Customer {
 	}
 
 	public String getName() {
-		return name;
+		return EncryptedField.plaintextOf(name);
 	}
 
 	public void setName(String name) {
+		this.name = EncryptedField.ofPlaintext(name);
+	}
+
+	@JsonIgnore
+	public EncryptedField getEncryptedName() {
+		return name;
+	}
+
+	public void setEncryptedName(EncryptedField name) {
 		this.name = name;
 	}
 
 	public String getSurname() {
-		return surname;
+		return EncryptedField.plaintextOf(surname);
 	}
 
 	public void setSurname(String surname) {
+		this.surname = EncryptedField.ofPlaintext(surname);
+	}
+
+	@JsonIgnore
+	public EncryptedField getEncryptedSurname() {
+		return surname;
+	}
+
+	public void setEncryptedSurname(EncryptedField surname) {
 		this.surname = surname;
 	}
 
@@ -156,8 +179,13 @@ public class Customer {
 
 	@Override
 	public String toString() {
-		return "Customer [customer_Id=" + customer_Id + ", name=" + name + ", surname=" + surname + ", address="
+		return "Customer [customer_Id=" + customer_Id + ", name=" + loggable(name) + ", surname=" + loggable(surname) + ", address="
 				+ address + ", zipCode=" + zipCode + ", nationalId=" + nationalId + ", birthDate=" + birthDate
 				+ ", accounts=" + accounts + "]";
 	}
+
+	// Plaintext if it is known already; logging a customer must not decrypt its names
+	private static String loggable(EncryptedField field) {
+		return field == null || field.isDecrypted() ? EncryptedField.plaintextOf(field) : "<encrypted>";
+	}
 }
\ No newline at end of file
@@ -1,8 +1,20 @@
 package com.example.csv_json_project.repositories;
 
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
 import com.example.csv_json_project.model.Account;
+import com.example.csv_json_project.model.BalanceReportRow;
 
 public interface AccountRepository extends JpaRepository<Account, String> {
-}
 
+    // Accounts with a balance above threshold joined with their customer, filtered by the database
+    // through the ACCOUNT.BALANCE index; one flat row per account
+    @Query("SELECT new com.example.csv_json_project.model.BalanceReportRow(c.customer_Id, c.name, c.surname, c.nationalId, "
+            + "a.accountNumber, a.encryptedAccountNumber, a.openDate, a.balance, a.encryptedBalance) "
+            + "FROM Account a JOIN a.customer c WHERE a.balance > :threshold ORDER BY c.customer_Id, a.accountNumber")
+    List<BalanceReportRow> findBalanceReport(@Param("threshold") double threshold);
+}
@@ -0,0 +1,160 @@
+package com.example.csv_json_project.services;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Function;
+
+// Work-stealing unit for the fork-join worker pool. Before processing its chunk a task keeps
+// halving it and forking the second half for as long as the pool has next to nothing queued,
+// i.e. while some worker would otherwise sit idle. Expensive regions (failed decryptions,
+// database errors) therefore end up spread over small chunks that idle workers steal, instead
+// of one worker finishing a large static slice long after the others.
+public class AdaptiveChunkTask extends RecursiveAction {
+
+    // Stop splitting once this many forked tasks are waiting beyond what idle workers can take
+    static final int SURPLUS_THRESHOLD = 2;
+
+    // A piece of input that can be split in two and turned into a worker task
+    public interface Chunk {
+        // Split off the second half and keep the first; null if the chunk is too small to split
+        Chunk splitOff() throws IOException;
+
+        Runnable task();
+    }
+
+    private final Chunk chunk;
+    private final WorkerUtilization utilization;
+
+    public AdaptiveChunkTask(Chunk chunk, WorkerUtilization utilization) {
+        this.chunk = chunk;
+        this.utilization = utilization;
+    }
+
+    @Override
+    protected void compute() {
+        List<AdaptiveChunkTask> forked = new ArrayList<>();
+        RuntimeException failure = null;
+        try {
+            while (getSurplusQueuedTaskCount() <= SURPLUS_THRESHOLD) {
+                Chunk half = chunk.splitOff();
+                if (half == null) {
+                    break;
+                }
+                AdaptiveChunkTask task = new AdaptiveChunkTask(half, utilization);
+                task.fork();
+                forked.add(task);
+            }
+        } catch (IOException e) {
+            // Still process the chunk as it is, it just stays bigger
+            failure = new UncheckedIOException("Error splitting CSV chunk", e);
+        }
+
+        try {
+            long start = System.nanoTime();
+            chunk.task().run();
+            utilization.record(System.nanoTime() - start);
+        } catch (RuntimeException e) {
+            failure = addFailure(failure, e);
+        }
+
+        // Join every forked half, even after a failure, so the caller only returns once all of them are done.
+        // A worker waiting here runs or steals other tasks meanwhile.
+        for (int i = forked.size() - 1; i >= 0; i--) {
+            try {
+                forked.get(i).join();
+            } catch (RuntimeException e) {
+                failure = addFailure(failure, e);
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static RuntimeException addFailure(RuntimeException failure, RuntimeException e) {
+        if (failure == null) {
+            return e;
+        }
+        failure.addSuppressed(e);
+        return failure;
+    }
+
+    // Lines of one batch, split down to minLines
+    public static Chunk lines(List<String> lines, int minLines, Function<List<String>, Runnable> taskFactory) {
+        return new LinesChunk(lines, Math.max(1, minLines), taskFactory);
+    }
+
+    // Newline-aligned byte range of a file, split down to minBytes
+    public static Chunk range(FileChannel channel, MappedCsvSplitter.ByteRange range, long minBytes,
+                              Function<MappedCsvSplitter.ByteRange, Runnable> taskFactory) {
+        return new RangeChunk(channel, range, Math.max(1, minBytes), taskFactory);
+    }
+
+    private static class LinesChunk implements Chunk {
+
+        private List<String> lines;
+        private final int minLines;
+        private final Function<List<String>, Runnable> taskFactory;
+
+        private LinesChunk(List<String> lines, int minLines, Function<List<String>, Runnable> taskFactory) {
+            this.lines = lines;
+            this.minLines = minLines;
+            this.taskFactory = taskFactory;
+        }
+
+        @Override
+        public Chunk splitOff() {
+            if (lines.size() < 2 * minLines) {
+                return null;
+            }
+            int middle = lines.size() / 2;
+            Chunk half = new LinesChunk(lines.subList(middle, lines.size()), minLines, taskFactory);
+            lines = lines.subList(0, middle);
+            return half;
+        }
+
+        @Override
+        public Runnable task() {
+            return taskFactory.apply(lines);
+        }
+    }
+
+    private static class RangeChunk implements Chunk {
+
+        private final FileChannel channel;
+        private MappedCsvSplitter.ByteRange range;
+        private final long minBytes;
+        private final Function<MappedCsvSplitter.ByteRange, Runnable> taskFactory;
+
+        private RangeChunk(FileChannel channel, MappedCsvSplitter.ByteRange range, long minBytes,
+                           Function<MappedCsvSplitter.ByteRange, Runnable> taskFactory) {
+            this.channel = channel;
+            this.range = range;
+            this.minBytes = minBytes;
+            this.taskFactory = taskFactory;
+        }
+
+        @Override
+        public Chunk splitOff() throws IOException {
+            if (range.length() < 2 * minBytes) {
+                return null;
+            }
+            long middle = MappedCsvSplitter.lineAlignedMiddle(channel, range);
+            if (middle < 0) {
+                return null; // A single line, nothing to split
+            }
+            Chunk half = new RangeChunk(channel, new MappedCsvSplitter.ByteRange(middle, range.end()), minBytes, taskFactory);
+            range = new MappedCsvSplitter.ByteRange(range.start(), middle);
+            return half;
+        }
+
+        @Override
+        public Runnable task() {
+            return taskFactory.apply(range);
+        }
+    }
+}
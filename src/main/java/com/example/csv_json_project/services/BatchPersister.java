@@ -0,0 +1,169 @@
+package com.example.csv_json_project.services;
+
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.csv_json_project.model.Account;
+import com.example.csv_json_project.model.Customer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+
+// Saves validated rows in JDBC batches instead of one repository save per row. Customers and
+// accounts carry their id from the CSV, so save() takes them for detached entities and merges,
+// selecting every row before inserting it; new rows are persisted here instead. The persistence
+// context is flushed and cleared every batch-size rows, which Hibernate sends as one JDBC batch
+// (hibernate.jdbc.batch_size), and a transaction is committed every commit-interval rows.
+// A batch that fails, e.g. on a duplicate id, is bisected until the failing rows stand alone,
+// so every other row is still committed in batches.
+@Component
+public class BatchPersister implements RowPersistenceEngine {
+
+    public static final String NAME = "jpa-batch";
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${csv.persistence.batch-size:500}")
+    private int batchSize;
+
+    @Value("${csv.persistence.commit-interval:5000}")
+    private int commitInterval;
+
+    private TransactionTemplate transactions;
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder commits = new LongAdder();
+    private final LongAdder splits = new LongAdder();
+    private final LongAdder failedRows = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchPersister.class);
+
+    @PostConstruct
+    public void start() {
+        transactions = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    // Rows saved per transaction
+    @Override
+    public int commitInterval() {
+        return Math.max(1, commitInterval);
+    }
+
+    @Override
+    public void persistCustomers(List<Customer> customers, RowFailureHandler onFailure) {
+        persistAll(customers, onFailure);
+    }
+
+    @Override
+    public void persistAccounts(List<Account> accounts, RowFailureHandler onFailure) {
+        persistAll(accounts, onFailure);
+    }
+
+    // Insert the new entities, committing every commit-interval rows. Rows that fail are left out
+    // and reported to onFailure with the exception translated as repositories do, e.g. a duplicate
+    // id as DataIntegrityViolationException; every other row is saved.
+    public void persistAll(List<?> entities, RowFailureHandler onFailure) {
+        for (int from = 0; from < entities.size(); from += commitInterval()) {
+            int to = Math.min(entities.size(), from + commitInterval());
+            persistBisecting(entities.subList(from, to), from, onFailure);
+        }
+    }
+
+    // A failed batch is rolled back as a whole; each half is tried again on its own, so k bad rows
+    // cost about k * log2(size) extra transactions instead of one save per row
+    private void persistBisecting(List<?> entities, int offset, RowFailureHandler onFailure) {
+        try {
+            persistAll(entities);
+        } catch (RuntimeException e) {
+            if (entities.size() == 1) {
+                failedRows.increment();
+                onFailure.failed(offset, e);
+                return;
+            }
+            splits.increment();
+            logger.debug("Batch of {} rows failed, bisecting: {}", entities.size(), e.getMessage());
+            int half = entities.size() / 2;
+            persistBisecting(entities.subList(0, half), offset, onFailure);
+            persistBisecting(entities.subList(half, entities.size()), offset + half, onFailure);
+        }
+    }
+
+    // Insert the new entities in one transaction. If any of them fails the transaction is rolled
+    // back, none of them is saved and the translated exception is rethrown.
+    public void persistAll(List<?> entities) {
+        if (entities.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        int flushEvery = Math.max(1, batchSize);
+        try {
+            transactions.executeWithoutResult(status -> {
+                try {
+                    for (int i = 0; i < entities.size(); i++) {
+                        entityManager.persist(entities.get(i));
+                        if ((i + 1) % flushEvery == 0) {
+                            entityManager.flush();
+                            entityManager.clear();
+                        }
+                    }
+                    entityManager.flush();
+                } finally {
+                    // Never keep the entities managed, also after a failure
+                    entityManager.clear();
+                }
+            });
+        } catch (RuntimeException e) {
+            throw translate(e);
+        }
+        rows.add(entities.size());
+        commits.increment();
+        nanos.add(System.nanoTime() - start);
+    }
+
+    // The exception as a repository would have thrown it; flush errors reach us untranslated
+    private RuntimeException translate(RuntimeException e) {
+        if (e instanceof DataAccessException || !(transactionManager instanceof JpaTransactionManager jpa)) {
+            return e;
+        }
+        DataAccessException translated = jpa.getJpaDialect().translateExceptionIfPossible(e);
+        return translated != null ? translated : e;
+    }
+
+    public long rows() {
+        return rows.sum();
+    }
+
+    public long failedRows() {
+        return failedRows.sum();
+    }
+
+    // e.g. "120000 rows in 24 commits, 41000 rows/s per writer, 3 failed rows isolated in 39 splits";
+    // writers commit concurrently
+    @Override
+    public String stats() {
+        long rowCount = rows();
+        double seconds = nanos.sum() / 1e9;
+        return String.format("%d rows in %d commits, %.0f rows/s per writer, %d failed rows isolated in %d splits",
+                rowCount, commits.sum(), seconds > 0 ? rowCount / seconds : 0, failedRows(), splits.sum());
+    }
+}
@@ -0,0 +1,234 @@
+package com.example.csv_json_project.services;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import com.example.csv_json_project.springSecurity.DecryptCache;
+import com.example.csv_json_project.springSecurity.DecryptionBatch;
+import com.example.csv_json_project.springSecurity.EncryptionUtil;
+
+// Maps CSV columns onto an entity. Built once per file from its header row, it
+// resolves every known column name to its position up front, so binding a row is a
+// straight walk over (position, setter) pairs with no header or name lookups.
+// Encrypted columns of a row are decrypted together in one batch before any setter runs;
+// columns the decrypt cache is enabled for look repeated ciphertexts up there instead.
+public class ColumnBinder<T> {
+
+    // Parses one column value and applies it to the target
+    @FunctionalInterface
+    public interface FieldBinding<T> {
+        void bind(T target, CsvTokenizer fields, int column) throws Exception;
+    }
+
+    // Applies one decrypted column value, found in the batch at slot, to the target
+    @FunctionalInterface
+    public interface DecryptedBinding<T> {
+        void bind(T target, DecryptionBatch decrypted, int slot) throws Exception;
+    }
+
+    // Cheap test of a raw column value, run before the row is bound or anything is decrypted
+    @FunctionalInterface
+    public interface FieldCheck {
+        Verdict check(CharSequence value);
+    }
+
+    // INVALID rows would fail validation, MALFORMED rows would fail to bind
+    public enum Verdict {
+        VALID, INVALID, MALFORMED
+    }
+
+    // One batch per worker thread, its buffers are reused across rows
+    private static final ThreadLocal<DecryptionBatch> DECRYPTION = ThreadLocal.withInitial(DecryptionBatch::new);
+
+    private final String entityName;
+    private final Supplier<T> factory;
+    private final int[] columns;
+    private final List<Object> bindings; // FieldBinding or DecryptedBinding
+    private final int[] slots; // Batch slot of each binding, -1 for plain columns
+    private final int[] encryptedColumns;
+    private final DecryptCache[] encryptedCaches; // Per encrypted column, null where it is not cached
+    private final int[] checkedColumns;
+    private final FieldCheck[] checks;
+    private final int requiredFields;
+
+    private ColumnBinder(String entityName, Supplier<T> factory, int[] columns, List<Object> bindings, int[] slots,
+                         int[] encryptedColumns, DecryptCache[] encryptedCaches, int[] checkedColumns, FieldCheck[] checks) {
+        this.entityName = entityName;
+        this.factory = factory;
+        this.columns = columns;
+        this.bindings = bindings;
+        this.slots = slots;
+        this.encryptedColumns = encryptedColumns;
+        this.encryptedCaches = encryptedCaches;
+        this.checkedColumns = checkedColumns;
+        this.checks = checks;
+        int maxColumn = -1;
+        for (int column : columns) {
+            maxColumn = Math.max(maxColumn, column);
+        }
+        this.requiredFields = maxColumn + 1;
+    }
+
+    // Create an entity from the tokenized row
+    @SuppressWarnings("unchecked")
+    public T bind(CsvTokenizer fields) throws Exception {
+        if (fields.size() < requiredFields) {
+            throw new IllegalArgumentException("Insufficient fields for " + entityName);
+        }
+        DecryptionBatch decrypted = null;
+        if (encryptedColumns.length > 0) {
+            decrypted = DECRYPTION.get();
+            decrypted.clear();
+            for (int i = 0; i < encryptedColumns.length; i++) {
+                decrypted.add(fields.trimmed(encryptedColumns[i]), encryptedCaches[i]);
+            }
+            EncryptionUtil.decryptBatch(decrypted);
+        }
+
+        T target = factory.get();
+        for (int i = 0; i < columns.length; i++) {
+            if (slots[i] >= 0) {
+                ((DecryptedBinding<T>) bindings.get(i)).bind(target, decrypted, slots[i]);
+            } else {
+                ((FieldBinding<T>) bindings.get(i)).bind(target, fields, columns[i]);
+            }
+        }
+        return target;
+    }
+
+    // Run the registered field checks on the tokenized row. A malformed field wins over an invalid one,
+    // as binding fails before validation runs; for the same reason an invalid row is only reported as
+    // INVALID once its plain columns are known to bind, otherwise it is left to bind to report like
+    // rows too short to bind are.
+    public Verdict precheck(CsvTokenizer fields) {
+        if (fields.size() < requiredFields) {
+            return Verdict.VALID;
+        }
+        Verdict verdict = Verdict.VALID;
+        for (int i = 0; i < checks.length; i++) {
+            Verdict field = checks[i].check(fields.trimmed(checkedColumns[i]));
+            if (field == Verdict.MALFORMED) {
+                return field;
+            } else if (field == Verdict.INVALID) {
+                verdict = field;
+            }
+        }
+        return verdict == Verdict.INVALID && !bindsPlainColumns(fields) ? Verdict.VALID : verdict;
+    }
+
+    // Whether every column that needs no decryption binds, tried on a throwaway entity
+    @SuppressWarnings("unchecked")
+    private boolean bindsPlainColumns(CsvTokenizer fields) {
+        T target = factory.get();
+        try {
+            for (int i = 0; i < columns.length; i++) {
+                if (slots[i] < 0) {
+                    ((FieldBinding<T>) bindings.get(i)).bind(target, fields, columns[i]);
+                }
+            }
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    public static <T> Builder<T> builder(String entityName, Supplier<T> factory) {
+        return new Builder<>(entityName, factory);
+    }
+
+    public static class Builder<T> {
+
+        private final String entityName;
+        private final Supplier<T> factory;
+        private final Map<String, Object> bindingsByColumn = new LinkedHashMap<>();
+        private final Map<String, FieldCheck> checksByColumn = new LinkedHashMap<>();
+        private DecryptCache decryptCache;
+
+        private Builder(String entityName, Supplier<T> factory) {
+            this.entityName = entityName;
+            this.factory = factory;
+        }
+
+        // Register the step for a named column; columns are applied in registration order
+        public Builder<T> column(String name, FieldBinding<T> binding) {
+            bindingsByColumn.put(name.toUpperCase(), binding);
+            return this;
+        }
+
+        // Register the step for a named column holding Base64 AES ciphertext, applied to the decrypted value
+        public Builder<T> encryptedColumn(String name, DecryptedBinding<T> binding) {
+            bindingsByColumn.put(name.toUpperCase(), binding);
+            return this;
+        }
+
+        // Register a precheck for a named column, which must also be bound
+        public Builder<T> check(String name, FieldCheck check) {
+            checksByColumn.put(name.toUpperCase(), check);
+            return this;
+        }
+
+        // Cache the decryptions of the encrypted columns the cache is enabled for; null disables it
+        public Builder<T> decryptCache(DecryptCache decryptCache) {
+            this.decryptCache = decryptCache;
+            return this;
+        }
+
+        // Resolve the registered columns against a header row; every registered column must be present
+        public ColumnBinder<T> build(CsvTokenizer header) {
+            Map<String, Integer> positions = new LinkedHashMap<>();
+            for (int i = 0; i < header.size(); i++) {
+                positions.putIfAbsent(header.trimmedString(i).toUpperCase(), i);
+            }
+            return build(positions);
+        }
+
+        // Resolve the registered columns against a fixed column order, for files without a header
+        public ColumnBinder<T> build(String... columnOrder) {
+            Map<String, Integer> positions = new LinkedHashMap<>();
+            for (int i = 0; i < columnOrder.length; i++) {
+                positions.put(columnOrder[i].toUpperCase(), i);
+            }
+            return build(positions);
+        }
+
+        private ColumnBinder<T> build(Map<String, Integer> positions) {
+            int[] columns = new int[bindingsByColumn.size()];
+            int[] slots = new int[bindingsByColumn.size()];
+            List<Object> bindings = new ArrayList<>(bindingsByColumn.size());
+            List<Integer> encryptedColumns = new ArrayList<>();
+            List<DecryptCache> encryptedCaches = new ArrayList<>();
+            int i = 0;
+            for (Map.Entry<String, Object> entry : bindingsByColumn.entrySet()) {
+                Integer position = positions.get(entry.getKey());
+                if (position == null) {
+                    throw new IllegalArgumentException("Missing " + entityName + " column: " + entry.getKey());
+                }
+                if (entry.getValue() instanceof DecryptedBinding) {
+                    slots[i] = encryptedColumns.size();
+                    encryptedColumns.add(position);
+                    encryptedCaches.add(decryptCache != null && decryptCache.isEnabledFor(entry.getKey()) ? decryptCache : null);
+                } else {
+                    slots[i] = -1;
+                }
+                columns[i++] = position;
+                bindings.add(entry.getValue());
+            }
+            int[] checkedColumns = new int[checksByColumn.size()];
+            FieldCheck[] checks = new FieldCheck[checksByColumn.size()];
+            i = 0;
+            for (Map.Entry<String, FieldCheck> entry : checksByColumn.entrySet()) {
+                if (!bindingsByColumn.containsKey(entry.getKey())) {
+                    throw new IllegalArgumentException("Check for unbound " + entityName + " column: " + entry.getKey());
+                }
+                checkedColumns[i] = positions.get(entry.getKey());
+                checks[i++] = entry.getValue();
+            }
+            return new ColumnBinder<>(entityName, factory, columns, bindings, slots,
+                    encryptedColumns.stream().mapToInt(Integer::intValue).toArray(),
+                    encryptedCaches.toArray(new DecryptCache[0]), checkedColumns, checks);
+        }
+    }
+}
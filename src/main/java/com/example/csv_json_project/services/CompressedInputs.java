@@ -0,0 +1,65 @@
+package com.example.csv_json_project.services;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+// Detects gzip and zlib (deflate) compressed CSV input by its magic bytes and
+// decompresses it as a stream, so compressed uploads never need to be expanded on disk.
+public class CompressedInputs {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    public enum Compression { NONE, GZIP, DEFLATE }
+
+    private CompressedInputs() {
+    }
+
+    // Wrap the stream in a decompressor when it starts with a gzip or zlib header
+    public static InputStream decompressIfNeeded(InputStream input) throws IOException {
+        BufferedInputStream buffered = new BufferedInputStream(input, BUFFER_SIZE);
+        buffered.mark(2);
+        int first = buffered.read();
+        int second = buffered.read();
+        buffered.reset();
+
+        return switch (detect(first, second)) {
+            case GZIP -> new GZIPInputStream(buffered, BUFFER_SIZE);
+            case DEFLATE -> new InflaterInputStream(buffered, new Inflater(), BUFFER_SIZE) {
+                // An Inflater passed in is not ended by close; free its native memory here instead of in the GC
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        inf.end();
+                    }
+                }
+            };
+            case NONE -> buffered;
+        };
+    }
+
+    public static Compression detect(Path file) throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            return detect(input.read(), input.read());
+        }
+    }
+
+    // gzip starts with 1f 8b; a zlib stream with CMF 0x78 (deflate, 32K window), no preset dictionary
+    // and a header checksum divisible by 31, which rules out text such as "x " or "x?"
+    static Compression detect(int first, int second) {
+        if (first == 0x1f && second == 0x8b) {
+            return Compression.GZIP;
+        }
+        if (first == 0x78 && second >= 0 && (second & 0x20) == 0 && ((first << 8) | second) % 31 == 0) {
+            return Compression.DEFLATE;
+        }
+        return Compression.NONE;
+    }
+}
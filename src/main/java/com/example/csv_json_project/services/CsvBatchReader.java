@@ -0,0 +1,88 @@
+package com.example.csv_json_project.services;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// Reads a CSV source incrementally and hands out fixed-size batches of records,
+// so memory is bounded by the batch size instead of the file size. A record whose
+// quoted field contains a newline is joined back into one entry, up to
+// CsvRecordBoundary.MAX_RECORD_LENGTH characters.
+public class CsvBatchReader implements Closeable {
+
+    private final BufferedReader reader;
+    private final int batchSize;
+    // Lines read ahead for a record that turned out to be malformed
+    private final Deque<String> replay = new ArrayDeque<>();
+
+    public CsvBatchReader(Reader reader, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        this.reader = reader instanceof BufferedReader ? (BufferedReader) reader : new BufferedReader(reader);
+        this.batchSize = batchSize;
+    }
+
+    // Return the next batch of non-empty records, or null once the source is exhausted
+    public List<String> nextBatch() throws IOException {
+        List<String> batch = new ArrayList<>(batchSize);
+        String line;
+        while (batch.size() < batchSize && (line = nextRecord()) != null) {
+            if (!line.trim().isEmpty()) { // Skip empty lines
+                batch.add(line);
+            }
+        }
+        return batch.isEmpty() ? null : batch;
+    }
+
+    // The next line, with the following lines appended while a quoted field is still open. A quote
+    // still open at the end of the source or after MAX_RECORD_LENGTH characters, or closed with
+    // content after it, leaves the line alone, to fail as malformed, and the lines read after it
+    // are handed out again.
+    private String nextRecord() throws IOException {
+        String line = nextLine();
+        if (line == null) {
+            return null;
+        }
+        int state = CsvRecordBoundary.scan(CsvRecordBoundary.FIELD_START, line);
+        if (state != CsvRecordBoundary.QUOTED) {
+            return line;
+        }
+        List<String> joined = new ArrayList<>();
+        int length = line.length();
+        String next;
+        while (length <= CsvRecordBoundary.MAX_RECORD_LENGTH && (next = nextLine()) != null) {
+            joined.add(next);
+            length += 1 + next.length();
+            state = CsvRecordBoundary.scanJoined(state, next); // The newline before it is part of the quoted field
+            if (state == CsvRecordBoundary.MALFORMED) {
+                break;
+            }
+            if (state != CsvRecordBoundary.QUOTED) {
+                StringBuilder record = new StringBuilder(length).append(line);
+                for (String part : joined) {
+                    record.append('\n').append(part);
+                }
+                return record.toString();
+            }
+        }
+        for (int i = joined.size() - 1; i >= 0; i--) {
+            replay.addFirst(joined.get(i));
+        }
+        return line;
+    }
+
+    private String nextLine() throws IOException {
+        return replay.isEmpty() ? reader.readLine() : replay.pollFirst();
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
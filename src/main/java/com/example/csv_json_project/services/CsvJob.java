@@ -0,0 +1,136 @@
+package com.example.csv_json_project.services;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Map;
+
+// One upload being processed. Everything a job touches while it runs - progress counters, error
+// collector, error file - hangs off its CsvJob, so jobs running at the same time never share state.
+public class CsvJob {
+
+    public enum State { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+    private final String id;
+    private final Path errorFile;
+    private final JobProgress progress = new JobProgress();
+    private final Instant submittedAt = Instant.now();
+
+    private volatile State state = State.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile long startNanos;
+    private volatile long finishNanos;
+    private volatile long expectedBytes; // 0 if unknown
+    private volatile ErrorCollector errors;
+    private volatile JobKeys keys;
+    private volatile String failure;
+    private volatile String persistenceEngine; // null for csv.persistence.engine
+
+    public CsvJob(String id, Path errorFile) {
+        this.id = id;
+        this.errorFile = errorFile;
+    }
+
+    public String id() {
+        return id;
+    }
+
+    public Path errorFile() {
+        return errorFile;
+    }
+
+    public JobProgress progress() {
+        return progress;
+    }
+
+    public State state() {
+        return state;
+    }
+
+    public boolean isFinished() {
+        return state == State.SUCCEEDED || state == State.FAILED;
+    }
+
+    // Name of the RowPersistenceEngine saving the rows, or null for the configured one
+    public String persistenceEngine() {
+        return persistenceEngine;
+    }
+
+    void usePersistenceEngine(String name) {
+        this.persistenceEngine = name;
+    }
+
+    // Size of the uncompressed input, enables the ETA estimate
+    void expectBytes(long bytes) {
+        this.expectedBytes = bytes;
+    }
+
+    void attachErrors(ErrorCollector errors) {
+        this.errors = errors;
+    }
+
+    // Keys taken in the database and by the job's rows; null if duplicates are left to the database
+    JobKeys keys() {
+        return keys;
+    }
+
+    void attachKeys(JobKeys keys) {
+        this.keys = keys;
+    }
+
+    void markRunning() {
+        startNanos = System.nanoTime();
+        startedAt = Instant.now();
+        state = State.RUNNING;
+    }
+
+    void markSucceeded() {
+        finish(State.SUCCEEDED);
+    }
+
+    void markFailed(Throwable e) {
+        failure = e.getMessage() != null ? e.getMessage() : e.getClass().getSimpleName();
+        finish(State.FAILED);
+    }
+
+    private void finish(State finalState) {
+        finishNanos = System.nanoTime();
+        finishedAt = Instant.now();
+        state = finalState;
+    }
+
+    // Point-in-time view of the job, safe to take while it runs
+    public Status status() {
+        State current = state; // Read first, the fields below are written before state changes
+        ErrorCollector collected = errors;
+        long errorCount = collected != null ? collected.size() : 0;
+        double errorRate = errorCount / (double) Math.max(1, progress.read());
+        double rowsPerSecond = 0;
+        Long etaSeconds = null;
+        if (current != State.QUEUED) {
+            long end = current == State.RUNNING ? System.nanoTime() : finishNanos;
+            double seconds = Math.max(1, end - startNanos) / 1e9;
+            rowsPerSecond = progress.persisted() / seconds;
+            etaSeconds = current == State.RUNNING ? estimateRemainingSeconds(seconds) : Long.valueOf(0);
+        }
+        return new Status(id, current, submittedAt, startedAt, finishedAt, progress.snapshot(), errorCount, errorRate,
+                rowsPerSecond, etaSeconds, errorFile.toString(), failure);
+    }
+
+    // Extrapolated from the share of the input the workers have picked up; null until that is known
+    private Long estimateRemainingSeconds(double elapsedSeconds) {
+        long expected = expectedBytes;
+        long done = progress.bytesRead();
+        if (expected <= 0 || done <= 0) {
+            return null;
+        }
+        double fraction = Math.min(1.0, done / (double) expected);
+        return Math.round(elapsedSeconds * (1 - fraction) / fraction);
+    }
+
+    // errorRate is errors per row read; etaSeconds is null while unknown, e.g. for compressed uploads
+    public record Status(String id, State state, Instant submittedAt, Instant startedAt, Instant finishedAt,
+                         Map<String, Long> rows, long errors, double errorRate, double rowsPerSecond, Long etaSeconds,
+                         String errorFile, String failure) {
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.csv_json_project.services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Runs uploads as background jobs so the request thread returns as soon as the files are spooled.
+// At most max-concurrent jobs run at once, later ones wait in QUEUED state. The rows of all running
+// jobs share the CsvWorkerPool. Finished jobs stay queryable until retained newer ones have finished.
+@Service
+public class CsvJobService {
+
+    @Autowired
+    private CsvProcessorService csvProcessorService;
+
+    @Value("${csv.jobs.max-concurrent:2}")
+    private int maxConcurrent;
+
+    @Value("${csv.jobs.retained:100}")
+    private int retained;
+
+    private final Map<String, CsvJob> jobs = new ConcurrentHashMap<>();
+    private final Queue<CsvJob> finished = new ConcurrentLinkedQueue<>(); // Oldest first
+    private ExecutorService executorService;
+
+    private static final Logger logger = LoggerFactory.getLogger(CsvJobService.class);
+
+    @PostConstruct
+    public void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        executorService = Executors.newFixedThreadPool(Math.max(1, maxConcurrent), task -> {
+            Thread thread = new Thread(task, "csv-job-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    // Process the spooled files in the background; both files are deleted once the job is done
+    public CsvJob submit(Path accountFile, Path customerFile) {
+        return submit(accountFile, customerFile, null);
+    }
+
+    // As submit(accountFile, customerFile), saving the rows with the named persistence engine
+    // ("row", "jpa-batch", "h2-bulk") instead of csv.persistence.engine when it is not null
+    public CsvJob submit(Path accountFile, Path customerFile, String persistenceEngine) {
+        checkPersistenceEngine(persistenceEngine);
+        CsvJob job = csvProcessorService.newJob();
+        job.usePersistenceEngine(persistenceEngine);
+        jobs.put(job.id(), job);
+        try {
+            executorService.execute(() -> run(job, accountFile, customerFile));
+        } catch (RuntimeException e) {
+            jobs.remove(job.id());
+            throw e;
+        }
+        logger.info("CSV job {} queued", job.id());
+        return job;
+    }
+
+    // Throws IllegalArgumentException for an unknown persistence engine name, so uploads can be rejected early
+    public void checkPersistenceEngine(String persistenceEngine) {
+        csvProcessorService.checkPersistenceEngine(persistenceEngine);
+    }
+
+    public Optional<CsvJob> find(String id) {
+        return Optional.ofNullable(jobs.get(id));
+    }
+
+    private void run(CsvJob job, Path accountFile, Path customerFile) {
+        job.markRunning();
+        Throwable failure = null;
+        try {
+            expectInputSize(job, accountFile, customerFile);
+            csvProcessorService.processCsvFiles(accountFile.toString(), customerFile.toString(), job);
+        } catch (Throwable e) {
+            // Errors too, a job must never stay RUNNING
+            failure = e;
+        } finally {
+            deleteQuietly(accountFile);
+            deleteQuietly(customerFile);
+        }
+
+        // Clean up before the state changes, a finished job has nothing left behind
+        retire(job);
+        if (failure == null) {
+            job.markSucceeded();
+            logger.info("CSV job {} finished: {}", job.id(), job.status());
+        } else {
+            job.markFailed(failure);
+            logger.error("CSV job {} failed", job.id(), failure);
+            if (failure instanceof Error error) {
+                throw error;
+            }
+        }
+    }
+
+    // Forget the oldest finished jobs beyond the retention limit, together with their error files
+    private void retire(CsvJob job) {
+        finished.add(job);
+        while (finished.size() > retained) {
+            CsvJob oldest = finished.poll();
+            if (oldest != null) {
+                jobs.remove(oldest.id());
+                deleteQuietly(oldest.errorFile());
+            }
+        }
+    }
+
+    // Compressed files expand by an unknown factor, their jobs get no ETA
+    private void expectInputSize(CsvJob job, Path... files) throws IOException {
+        long bytes = 0;
+        for (Path file : files) {
+            if (CompressedInputs.detect(file) != CompressedInputs.Compression.NONE) {
+                return;
+            }
+            bytes += Files.size(file);
+        }
+        job.expectBytes(bytes);
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete {}", file, e);
+        }
+    }
+}
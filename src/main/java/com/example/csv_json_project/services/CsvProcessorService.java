@@ -1,11 +1,15 @@
 package com.example.csv_json_project.services;
 
+import com.example.csv_json_project.exporters.ErrorLogWriter;
 import com.example.csv_json_project.exporters.JsonExporter;
 import com.example.csv_json_project.exporters.XmlExporter;
 import com.example.csv_json_project.model.Account;
+import com.example.csv_json_project.model.BalanceReportRow;
 import com.example.csv_json_project.model.Customer;
 import com.example.csv_json_project.repositories.AccountRepository;
 import com.example.csv_json_project.repositories.CustomerRepository;
+import com.example.csv_json_project.springSecurity.DecryptCache;
+import com.example.csv_json_project.springSecurity.EncryptedField;
 import com.example.csv_json_project.springSecurity.EncryptionUtil;
 
 import jakarta.transaction.Transactional;
@@ -13,18 +17,21 @@ import jakarta.transaction.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.text.SimpleDateFormat;
 import java.util.*;
-import java.util.concurrent.CompletionService;
-import java.util.concurrent.ExecutorCompletionService;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 @Service
 public class CsvProcessorService {
@@ -41,97 +48,346 @@ public class CsvProcessorService {
     @Autowired
     private XmlExporter xmlExporter;
 
-    private final List<Map<String, String>> sharedErrors = new ArrayList<>();
+    @Autowired
+    private CsvWorkerPool workerPool;
 
+    @Autowired
+    private DecryptCache decryptCache;
 
-    private static final Logger logger = LoggerFactory.getLogger(CsvProcessorService.class);
+    @Autowired
+    private PersistenceEngines persistenceEngines;
 
-    public void processCsvFiles(String accountFilePath, String customerFilePath) throws IOException {
-    	
-        ExecutorService executorService = Executors.newCachedThreadPool();
+    @Autowired
+    private ExistingKeys existingKeys;
+
+    @Value("${csv.processing.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${csv.processing.queue-capacity:0}")
+    private int queueCapacity;
+
+    @Value("${csv.processing.reader:streaming}")
+    private String readerMode;
+
+    @Value("${csv.processing.simd:true}")
+    private boolean simdEnabled;
+
+    @Value("${csv.processing.two-phase:true}")
+    private boolean twoPhase;
+
+    @Value("${csv.processing.engine:tasks}")
+    private String engine;
+
+    @Value("${csv.pipeline.decrypt-workers:0}")
+    private int decryptWorkers;
+
+    @Value("${csv.pipeline.validate-workers:1}")
+    private int validateWorkers;
+
+    @Value("${csv.pipeline.persist-workers:4}")
+    private int persistWorkers;
+
+    @Value("${csv.pipeline.queue-capacity:4}")
+    private int pipelineQueueCapacity;
+
+    @Value("${csv.errors.file:Errors.json}")
+    private String errorFile;
+
+    // Accounts with a balance above this are exported by generateXmlAndJsonFiles
+    @Value("${csv.export.balance-threshold:1000}")
+    private double balanceThreshold;
+
+    private static final String READER_MAPPED = "mapped";
+    private static final String ENGINE_PIPELINE = "pipeline";
+
+    // Smallest chunks the fork-join scheduler splits batches and mapped ranges into
+    private static final int MIN_CHUNK_LINES = 64;
+    private static final long MIN_CHUNK_BYTES = 64 * 1024;
 
+    private final Object exportLock = new Object();
 
-        // Read the CSV files
-        List<String> accountLines = readCsvFile(accountFilePath);
-        List<String> customerLines = readCsvFile(customerFilePath);
+    private static final Logger logger = LoggerFactory.getLogger(CsvProcessorService.class);
 
-        int numThreads = Runtime.getRuntime().availableProcessors();
-        int accountChunkSize = (int) Math.ceil((double) accountLines.size() / numThreads);
-        int customerChunkSize = (int) Math.ceil((double) customerLines.size() / numThreads);
+    public void processCsvFiles(String accountFilePath, String customerFilePath) throws IOException {
+        processCsvFiles(accountFilePath, customerFilePath, new CsvJob(UUID.randomUUID().toString(), Path.of(errorFile)));
+    }
 
-        for (int i = 0; i < numThreads; i++) {
-            int accountStart = i * accountChunkSize;
-            int accountEnd = Math.min(accountStart + accountChunkSize, accountLines.size());
-            int customerStart = i * customerChunkSize;
-            int customerEnd = Math.min(customerStart + customerChunkSize, customerLines.size());
+    // Process the files as the given job, which receives the progress and errors
+    public void processCsvFiles(String accountFilePath, String customerFilePath, CsvJob job) throws IOException {
+        if (requiresFiles() && !isCompressed(accountFilePath) && !isCompressed(customerFilePath)) {
+            int numThreads = workerPool.maxWorkers();
+            DelimiterScanner scanner = DelimiterScanner.create(simdEnabled);
+            logger.debug("Using {} delimiter scanning", scanner.name());
 
-            if (accountStart >= accountEnd && customerStart >= customerEnd) {
-                break; // No more data to process
+            // The channels stay open until runJob has waited for every worker using the mapped ranges
+            try (FileChannel customerChannel = FileChannel.open(Path.of(customerFilePath), StandardOpenOption.READ);
+                 FileChannel accountChannel = FileChannel.open(Path.of(accountFilePath), StandardOpenOption.READ)) {
+                if (twoPhase) {
+                    CustomerIndex customerIndex = new CustomerIndex();
+                    runJob(job, (tasks, errors) -> submitRanges(tasks, errors, job, customerChannel, numThreads, scanner,
+                                    false, customerIndex),
+                            (tasks, errors) -> submitRanges(tasks, errors, job, accountChannel, numThreads, scanner,
+                                    true, customerIndex));
+                } else {
+                    runJob(job, (tasks, errors) -> {
+                        // Customers first so their rows are queued ahead of the accounts referencing them
+                        submitRanges(tasks, errors, job, customerChannel, numThreads, scanner, false, null);
+                        submitRanges(tasks, errors, job, accountChannel, numThreads, scanner, true, null);
+                    });
+                }
+            }
+        } else {
+            // Compressed files cannot be mapped, they are decompressed on the fly by the streaming reader
+            try (InputStream customerInput = Files.newInputStream(Path.of(customerFilePath));
+                 InputStream accountInput = Files.newInputStream(Path.of(accountFilePath))) {
+                processCsvStreams(accountInput, customerInput, job);
             }
+        }
+    }
 
-            List<String> accountChunk = accountLines.subList(accountStart, accountEnd);
-            List<String> customerChunk = customerLines.subList(customerStart, customerEnd);
-            executorService.submit(new CsvProcessorTask(accountChunk, customerChunk, accountRepository, customerRepository, sharedErrors));
+    // Process CSV data read straight from the given streams, e.g. multipart uploads, without staging them in files.
+    // gzip or zlib compressed streams are detected by their magic bytes and decompressed on the fly.
+    public void processCsvStreams(InputStream accountInput, InputStream customerInput) throws IOException {
+        processCsvStreams(accountInput, customerInput, new CsvJob(UUID.randomUUID().toString(), Path.of(errorFile)));
+    }
+
+    public void processCsvStreams(InputStream accountInput, InputStream customerInput, CsvJob job) throws IOException {
+        if (twoPhase) {
+            CustomerIndex customerIndex = new CustomerIndex();
+            runJob(job, (tasks, errors) -> submitBatches(tasks, errors, job, customerInput, false, customerIndex),
+                    (tasks, errors) -> submitBatches(tasks, errors, job, accountInput, true, customerIndex));
+        } else {
+            runJob(job, (tasks, errors) -> {
+                // Customers first so their rows are queued ahead of the accounts referencing them
+                submitBatches(tasks, errors, job, customerInput, false, null);
+                submitBatches(tasks, errors, job, accountInput, true, null);
+            });
         }
+    }
 
-        executorService.shutdown();
+    // A background job with its own error file next to csv.errors.file, e.g. Errors-<id>.json,
+    // so jobs running at the same time never write to the same file
+    public CsvJob newJob() {
+        String id = UUID.randomUUID().toString();
+        Path file = Path.of(errorFile);
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String jobName = dot > 0 ? name.substring(0, dot) + "-" + id + name.substring(dot) : name + "-" + id;
+        return new CsvJob(id, file.resolveSibling(jobName));
+    }
+
+    // Throws IllegalArgumentException unless name is null, "row" or the name of a persistence engine
+    public void checkPersistenceEngine(String name) {
+        persistenceEngines.check(name);
+    }
+
+    // The mapped reader needs seekable files; the streaming reader can consume any InputStream.
+    // The staged pipeline always reads through the streaming reader.
+    public boolean requiresFiles() {
+        return READER_MAPPED.equalsIgnoreCase(readerMode) && !usesPipeline();
+    }
 
-        while (!executorService.isTerminated()) {
-            // Wait for all tasks to finish
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                logger.error("Executor service interrupted", e);
-                Thread.currentThread().interrupt();
+    private boolean usesPipeline() {
+        return ENGINE_PIPELINE.equalsIgnoreCase(engine);
+    }
+
+    // Run the phases one after another, each phase starts once every task of the previous one has finished.
+    // In two-phase mode all customers are saved and indexed before the first account row is resolved, so
+    // accounts never race their customer and are linked through the index instead of a query per row.
+    private void runJob(CsvJob job, JobSubmitter... phases) throws IOException {
+        // Rows saved through an engine claim their keys first, so duplicates never reach an insert.
+        // Repository saves merge rows with stored ids and have no duplicates to catch.
+        RowPersistenceEngine persister = persistenceEngines.forJob(job);
+        if (persister != null) {
+            job.attachKeys(existingKeys.load());
+        }
+
+        // Errors of this job only, written once each to the job's error file as the workers hand them over
+        try (ErrorLogWriter errorLog = new ErrorLogWriter(job.errorFile())) {
+            ErrorCollector errors = new ErrorCollector(errorLog);
+            job.attachErrors(errors);
+            for (JobSubmitter phase : phases) {
+                runPhase(phase, errors);
+            }
+            if (errors.isEmpty()) {
+                logger.info("No errors found during CSV processing.");
             }
         }
+        if (persister != null) {
+            logger.info("Persistence engine {} after job {}: {}", persister.name(), job.id(), persister.stats());
+        }
+        if (job.keys() != null) {
+            logger.info("Duplicate keys after job {}: {}", job.id(), job.keys().stats());
+        }
+        if (decryptCache.size() > 0) {
+            logger.info("Decrypt cache after job {}: {}", job.id(), decryptCache.stats());
+        }
+
+        // Generate XML and JSON files for customers with account balance > 1000; jobs finishing
+        // together would otherwise write the same export files at the same time
+        synchronized (exportLock) {
+            generateXmlAndJsonFiles();
+        }
+    }
+
+    private void runPhase(JobSubmitter submitter, ErrorCollector errors) throws IOException {
+        int numThreads = workerPool.maxWorkers();
+
+        // Bounded hand-off: the reader blocks once every worker is busy and the queue is full,
+        // so at most (numThreads + capacity) batches of this job are held in memory regardless of the file size
+        int capacity = queueCapacity > 0 ? queueCapacity : numThreads * 2;
+        CsvWorkerPool.TaskGroup tasks = workerPool.newTaskGroup(numThreads + capacity);
 
-        // Generate error JSON file for invalid lines
-        generateErrorJsonFile();
+        long start = System.nanoTime();
+        try {
+            submitter.submit(tasks, errors);
+        } finally {
+            // Returns as soon as the last task finishes
+            tasks.awaitCompletion();
+        }
 
-        // Generate XML and JSON files for customers with account balance > 1000
-        generateXmlAndJsonFiles();
+        WorkerUtilization utilization = tasks.utilization();
+        logger.info("CSV phase finished in {} ms, {}", TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), utilization.summary());
+        logger.debug("Worker utilization: {}", utilization.details());
     }
 
-    // Read the CSV file and return list of lines
-    public List<String> readCsvFile(String filePath) throws IOException {
-        List<String> lines = new ArrayList<>();
-        try (BufferedReader reader = new BufferedReader(new FileReader(filePath))) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                if (!line.trim().isEmpty()) { // Skip empty lines
-                    lines.add(line);
+    // Read the CSV data incrementally and hand each batch of lines to a worker
+    private void submitBatches(CsvWorkerPool.TaskGroup tasks, ErrorCollector errors, CsvJob job, InputStream input,
+                               boolean accounts, CustomerIndex customerIndex) throws IOException {
+        // Closing the reader ends the decompressor as well
+        try (CsvBatchReader reader = new CsvBatchReader(
+                new InputStreamReader(CompressedInputs.decompressIfNeeded(input), StandardCharsets.UTF_8), batchSize)) {
+            List<String> batch = reader.nextBatch();
+            if (batch == null) {
+                return;
+            }
+
+            // Compile the column layout once from the header row, workers never look at it again
+            CsvTokenizer header = new CsvTokenizer();
+            boolean hasHeader = isHeader(header, batch.get(0), accounts);
+            if (hasHeader) {
+                batch = batch.subList(1, batch.size());
+            }
+            ColumnBinder<Account> accountBinder = accounts ? createAccountBinder(hasHeader ? header : null, customerIndex) : null;
+            ColumnBinder<Customer> customerBinder = accounts ? null : EntityBinders.customerBinder(hasHeader ? header : null, decryptCache);
+            CsvProcessorTask.Context context = taskContext(errors, job, accountBinder, customerBinder, customerIndex);
+
+            if (usesPipeline()) {
+                // The stages run on the worker pool; this thread becomes the parse stage and returns once the file is persisted
+                CsvProcessorTask rows = new CsvProcessorTask(Collections.emptyList(), Collections.emptyList(), context);
+                int decryptThreads = decryptWorkers > 0 ? decryptWorkers : Runtime.getRuntime().availableProcessors();
+                new StagedCsvPipeline(rows, workerPool, accounts, decryptThreads, validateWorkers, persistWorkers, pipelineQueueCapacity)
+                        .run(batch, reader);
+                return;
+            }
+
+            Function<List<String>, Runnable> taskFactory = lines -> new CsvProcessorTask(
+                    accounts ? lines : Collections.emptyList(), accounts ? Collections.emptyList() : lines, context);
+
+            while (batch != null) {
+                if (!batch.isEmpty()) {
+                    submitChunk(tasks, AdaptiveChunkTask.lines(batch, MIN_CHUNK_LINES, taskFactory));
                 }
+                batch = reader.nextBatch();
             }
         }
-        return lines;
     }
 
-    // Generate error JSON file for invalid lines
-    public void generateErrorJsonFile() throws IOException {
-        if (sharedErrors.isEmpty()) {
-            logger.info("No errors found during CSV processing.");
-            return;
+    // Split a memory-mapped file into newline-aligned ranges, one worker parses each range
+    private void submitRanges(CsvWorkerPool.TaskGroup tasks, ErrorCollector errors, CsvJob job, FileChannel channel,
+                              int parts, DelimiterScanner scanner, boolean accounts, CustomerIndex customerIndex)
+            throws IOException {
+        // Compile the column layout from the header row and leave the header out of the ranges
+        CsvTokenizer header = new CsvTokenizer();
+        MappedCsvSplitter.FirstLine firstLine = MappedCsvSplitter.firstLine(channel);
+        boolean hasHeader = firstLine != null && isHeader(header, firstLine.bytes(), scanner, accounts);
+        long dataStart = hasHeader ? firstLine.nextLineStart() : 0;
+        ColumnBinder<Account> accountBinder = accounts ? createAccountBinder(hasHeader ? header : null, customerIndex) : null;
+        ColumnBinder<Customer> customerBinder = accounts ? null : EntityBinders.customerBinder(hasHeader ? header : null, decryptCache);
+        CsvProcessorTask.Context context = taskContext(errors, job, accountBinder, customerBinder, customerIndex);
+
+        Function<MappedCsvSplitter.ByteRange, Runnable> taskFactory = range -> new MappedRangeTask(channel, range, accounts,
+                scanner, context);
+
+        for (MappedCsvSplitter.ByteRange range : MappedCsvSplitter.split(channel, parts, dataStart)) {
+            submitChunk(tasks, AdaptiveChunkTask.range(channel, range, MIN_CHUNK_BYTES, taskFactory));
         }
+    }
+
+    // Shared by every task of one file of the job
+    private CsvProcessorTask.Context taskContext(ErrorCollector errors, CsvJob job, ColumnBinder<Account> accountBinder,
+                                                 ColumnBinder<Customer> customerBinder, CustomerIndex customerIndex) {
+        return new CsvProcessorTask.Context(accountRepository, customerRepository, errors)
+                .binders(accountBinder, customerBinder)
+                .customerIndex(customerIndex)
+                .progress(job.progress())
+                .persister(persistenceEngines.forJob(job))
+                .keys(job.keys());
+    }
+
+    // On the fork-join pool the chunk is split further while other workers are idle, otherwise it runs as one task
+    private void submitChunk(CsvWorkerPool.TaskGroup tasks, AdaptiveChunkTask.Chunk chunk) {
+        if (workerPool.isForkJoin()) {
+            AdaptiveChunkTask task = new AdaptiveChunkTask(chunk, tasks.utilization());
+            tasks.execute(task::invoke);
+        } else {
+            tasks.execute(chunk.task());
+        }
+    }
+
+    // With a customer index, customers of this job resolve from memory; the database is only asked for ids
+    // the index does not know, e.g. customers loaded by an earlier upload
+    private ColumnBinder<Account> createAccountBinder(CsvTokenizer header, CustomerIndex customerIndex) {
+        if (customerIndex == null) {
+            return EntityBinders.accountBinder(header, customerId -> customerRepository.findById(customerId).orElse(null),
+                    decryptCache);
+        }
+        logger.debug("Resolving accounts against {} indexed customers", customerIndex.size());
+        return EntityBinders.accountBinder(header, customerId -> {
+            Customer customer = customerIndex.get(customerId);
+            return customer != null ? customer : customerRepository.findById(customerId).orElse(null);
+        }, decryptCache);
+    }
+
+    private boolean isHeader(CsvTokenizer header, String line, boolean accounts) {
+        try {
+            header.tokenize(line);
+        } catch (IllegalArgumentException e) {
+            return false; // Malformed, so not a header; the worker reports it as a bad row
+        }
+        return EntityBinders.isHeader(header, accounts ? EntityBinders.ACCOUNT_KEY_COLUMN : EntityBinders.CUSTOMER_KEY_COLUMN);
+    }
+
+    private boolean isHeader(CsvTokenizer header, byte[] line, DelimiterScanner scanner, boolean accounts) {
+        try {
+            header.tokenize(line, 0, line.length, scanner);
+        } catch (IllegalArgumentException e) {
+            return false; // Malformed, so not a header; the worker reports it as a bad row
+        }
+        return EntityBinders.isHeader(header, accounts ? EntityBinders.ACCOUNT_KEY_COLUMN : EntityBinders.CUSTOMER_KEY_COLUMN);
+    }
 
-        // Generate error JSON file
-        jsonExporter.exportToJson(sharedErrors, "errors.json");
+    private boolean isCompressed(String filePath) throws IOException {
+        return CompressedInputs.detect(Path.of(filePath)) != CompressedInputs.Compression.NONE;
+    }
+
+    @FunctionalInterface
+    private interface JobSubmitter {
+        void submit(CsvWorkerPool.TaskGroup tasks, ErrorCollector errors) throws IOException;
     }
 
     // Generate XML and JSON files for customers with account balance > 1000
     @Transactional
 	public void generateXmlAndJsonFiles() throws IOException {
-        List<Customer> customers = customerRepository.findAll();
-        List<Map<String, Object>> filteredCustomers = customers.stream()
-                .filter(customer -> customer.getAccounts().stream()
-                        .anyMatch(account -> account.getBalance() > 1000))
-                .flatMap(customer -> customer.getAccounts().stream()
-                        .filter(account -> account.getBalance() > 1000)
-                        .map(account -> createCustomerAccountMap(customer, account)))
-                .collect(Collectors.toList());
+        // Joined and filtered by the database, only the exported columns of matching accounts are loaded
+        List<BalanceReportRow> rows = accountRepository.findBalanceReport(balanceThreshold);
+        List<Map<String, Object>> filteredCustomers = new ArrayList<>(rows.size());
+        for (BalanceReportRow row : rows) {
+            filteredCustomers.add(createCustomerAccountMap(row));
+        }
 
         if (filteredCustomers.isEmpty()) {
-            logger.info("No customers found with account balance greater than 1000.");
+            logger.info("No customers found with account balance greater than {}.", balanceThreshold);
             return;
         }
 
@@ -141,17 +397,21 @@ public class CsvProcessorService {
         // Generate XML file
         xmlExporter.exportToXml(filteredCustomers, "customers_balance_gt_1000.xml");
     }
-    private Map<String, Object> createCustomerAccountMap(Customer customer, Account account) {
+    private Map<String, Object> createCustomerAccountMap(BalanceReportRow row) {
         Map<String, Object> customerAccountMap = new HashMap<>();
-        customerAccountMap.put("Customer_Id", customer.getCustomer_Id());
-        customerAccountMap.put("Customer_Name", customer.getName());
-        customerAccountMap.put("Customer_Surname", customer.getSurname());
-        customerAccountMap.put("Customer_National_Id", customer.getNationalId());
+        customerAccountMap.put("Customer_Id", row.customerId());
+        customerAccountMap.put("Customer_Name", EncryptedField.plaintextOf(row.name()));
+        customerAccountMap.put("Customer_Surname", EncryptedField.plaintextOf(row.surname()));
+        customerAccountMap.put("Customer_National_Id", row.nationalId());
         try {
-            customerAccountMap.put("Encrypted_Account_Number", EncryptionUtil.encrypt(account.getAccountNumber()));
+            // Uploaded ciphertext is passed through, it was made with the same key; accounts saved
+            // without it are encrypted here
+            customerAccountMap.put("Encrypted_Account_Number", row.encryptedAccountNumber() != null
+                    ? row.encryptedAccountNumber() : EncryptionUtil.encrypt(row.accountNumber()));
             SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd");
-            customerAccountMap.put("Account_OpenDate", dateFormat.format(account.getOpenDate()));
-            customerAccountMap.put("Encrypted_Balance", EncryptionUtil.encrypt(String.valueOf(account.getBalance())));
+            customerAccountMap.put("Account_OpenDate", dateFormat.format(row.openDate()));
+            customerAccountMap.put("Encrypted_Balance", row.encryptedBalance() != null
+                    ? row.encryptedBalance() : EncryptionUtil.encrypt(String.valueOf(row.balance())));
         } catch (Exception e) {
             logger.error("Error encrypting account number or balance", e);
         }
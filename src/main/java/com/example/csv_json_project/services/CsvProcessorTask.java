@@ -1,15 +1,13 @@
 package com.example.csv_json_project.services;
 
-import java.io.FileWriter;
-import java.io.IOException;
-import java.sql.Date;
-import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Calendar;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -20,217 +18,444 @@ import com.example.csv_json_project.model.Customer;
 import com.example.csv_json_project.repositories.AccountRepository;
 import com.example.csv_json_project.repositories.CustomerRepository;
 import com.example.csv_json_project.springSecurity.EncryptionUtil;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.SerializationFeature;
 
-import org.springframework.stereotype.Component;
-
-@Component
 public class CsvProcessorTask implements Runnable {
 
     private final List<String> accountLines;
     private final List<String> customerLines;
+    private final ColumnBinder<Account> accountBinder;
+    private final ColumnBinder<Customer> customerBinder;
+    private final CustomerIndex customerIndex;
     private final AccountRepository accountRepository;
     private final CustomerRepository customerRepository;
-    private final List<Map<String, String>> sharedErrors;
+    private final ErrorCollector sharedErrors;
+    private final JobProgress progress;
+    private final RowPersistenceEngine persister; // null saves row by row through the repositories
+    private final JobKeys keys; // null leaves duplicate keys to the database
+
+    // Valid rows of processCustomerRow/processAccountRow waiting for flushPending, in batch mode only
+    private final List<Customer> pendingCustomers = new ArrayList<>();
+    private final List<Supplier<String[]>> pendingCustomerFields = new ArrayList<>();
+    private final List<Account> pendingAccounts = new ArrayList<>();
+    private final List<Supplier<String[]>> pendingAccountFields = new ArrayList<>();
 
-    private static final String ERROR_FILE_PATH = "Errors.json";
     private static final Logger logger = LoggerFactory.getLogger(CsvProcessorTask.class);
 
-    public CsvProcessorTask(List<String> accountLines, List<String> customerLines, AccountRepository accountRepository,
-                            CustomerRepository customerRepository, List<Map<String, String>> sharedErrors) {
+    // Lines are data rows laid out as described by the context's binders, or in the default column order
+    // without a header if it has none
+    public CsvProcessorTask(List<String> accountLines, List<String> customerLines, Context context) {
         this.accountLines = accountLines;
         this.customerLines = customerLines;
-        this.accountRepository = accountRepository;
-        this.customerRepository = customerRepository;
-        this.sharedErrors = sharedErrors;
+        this.accountRepository = context.accountRepository;
+        this.customerRepository = context.customerRepository;
+        this.accountBinder = context.accountBinder != null ? context.accountBinder
+                : EntityBinders.accountBinder(null, customerId -> customerRepository.findById(customerId).orElse(null));
+        this.customerBinder = context.customerBinder != null ? context.customerBinder : EntityBinders.customerBinder(null);
+        this.customerIndex = context.customerIndex;
+        this.sharedErrors = context.sharedErrors;
+        this.progress = context.progress != null ? context.progress : new JobProgress();
+        this.persister = context.persister;
+        this.keys = context.keys;
+    }
+
+    // What the tasks of one job phase share. Only the repositories and the error collector are required,
+    // the rest is set before the first task is created.
+    public static class Context {
+
+        private final AccountRepository accountRepository;
+        private final CustomerRepository customerRepository;
+        private final ErrorCollector sharedErrors;
+        private ColumnBinder<Account> accountBinder;
+        private ColumnBinder<Customer> customerBinder;
+        private CustomerIndex customerIndex;
+        private JobProgress progress;
+        private RowPersistenceEngine persister;
+        private JobKeys keys;
+
+        public Context(AccountRepository accountRepository, CustomerRepository customerRepository,
+                       ErrorCollector sharedErrors) {
+            this.accountRepository = accountRepository;
+            this.customerRepository = customerRepository;
+            this.sharedErrors = sharedErrors;
+        }
+
+        // Binders compiled from each file's header; null for the default column order
+        public Context binders(ColumnBinder<Account> accountBinder, ColumnBinder<Customer> customerBinder) {
+            this.accountBinder = accountBinder;
+            this.customerBinder = customerBinder;
+            return this;
+        }
+
+        // Saved customers are also added to customerIndex, for the account phase of a two-phase job
+        public Context customerIndex(CustomerIndex customerIndex) {
+            this.customerIndex = customerIndex;
+            return this;
+        }
+
+        // Rows passing each step are counted in the job's progress
+        public Context progress(JobProgress progress) {
+            this.progress = progress;
+            return this;
+        }
+
+        // With a persistence engine, valid rows are held back and saved together by it instead of one save per row
+        public Context persister(RowPersistenceEngine persister) {
+            this.persister = persister;
+            return this;
+        }
+
+        // Rows claim their key in keys before they are saved, so duplicates are rejected without a failed insert
+        public Context keys(JobKeys keys) {
+            this.keys = keys;
+            return this;
+        }
     }
 
     @Override
     public void run() {
         List<Map<String, String>> errors = new ArrayList<>();
+        CsvTokenizer fields = CsvTokenizer.perThread();
+        progress.rowsRead(customerLines.size() + accountLines.size(), inputLength(customerLines) + inputLength(accountLines));
 
         // Process Customers
         for (int i = 0; i < customerLines.size(); i++) {
             String customerLine = customerLines.get(i);
-            String[] customerFields = customerLine.split(","); // Split by comma
-            if (isHeaderRow(customerFields, "CUSTOMER_ID")) continue; // Skip header row if present
-
             try {
-                Customer customer = createCustomerFromFields(customerFields);
-                if (validateCustomer(customer)) {
-                    customerRepository.save(customer);
-                    logger.info("Saved Customer: {}", customer);
-                } else {
-                    errors.add(createErrorMap("Customer", "400", "Validation Error", "Customer validation failed", customerFields));
-                    logger.warn("Validation failed for Customer: {}", customer);
-                }
-            } catch (DataIntegrityViolationException e) {
-                errors.add(createErrorMap("Customer", "409", "Data Integrity Error", "Duplicate Customer ID", customerFields));
-                logger.error("Duplicate Customer ID for line: {}", customerLine, e);
-            } catch (Exception e) {
-                errors.add(createErrorMap("Customer", "500", "Processing Error", "Exception processing Customer line", customerFields));
-                logger.error("Exception processing Customer line: {}", customerLine, e);
+                fields.tokenize(customerLine);
+            } catch (IllegalArgumentException e) {
+                errors.add(createErrorMap("Customer", "500", "Processing Error", "Malformed Customer line", new String[]{customerLine}));
+                logger.error("Malformed Customer line: {}", customerLine, e);
+                continue;
             }
+            progress.rowParsed();
+            processCustomerRow(fields, errors);
         }
+        // Accounts below may belong to these customers
+        flushPending(errors);
 
         // Process Accounts
         for (int i = 0; i < accountLines.size(); i++) {
             String accountLine = accountLines.get(i);
-            String[] accountFields = accountLine.split(","); // Split by comma
-            if (isHeaderRow(accountFields, "ACCOUNT_NUMBER")) continue; // Skip header row if present
-
             try {
-                Account account = createAccountFromFields(accountFields);
-                if (validateAccount(account)) {
-                    logger.info("Attempting to save Account: {}", account);
-                    accountRepository.save(account);
-                    logger.info("Saved Account: {}", account);
-                } else {
-                    errors.add(createErrorMap("Account", "400", "Validation Error", "Account validation failed", accountFields));
-                    logger.warn("Validation failed for Account: {}", account);
-                }
-            } catch (DataIntegrityViolationException e) {
-                logger.error("Data Integrity Violation while processing Account line: {}", accountLine, e);
-                errors.add(createErrorMap("Account", "409", "Data Integrity Error", "Data Integrity Violation", accountFields));
-            } catch (Exception e) {
-                errors.add(createErrorMap("Account", "500", "Processing Error", "Exception processing Account line", accountFields));
-                logger.error("Exception processing Account line: {}", accountLine, e);
+                fields.tokenize(accountLine);
+            } catch (IllegalArgumentException e) {
+                errors.add(createErrorMap("Account", "500", "Processing Error", "Malformed Account line", new String[]{accountLine}));
+                logger.error("Malformed Account line: {}", accountLine, e);
+                continue;
             }
+            progress.rowParsed();
+            processAccountRow(fields, errors);
         }
 
-        // Add errors to the shared list
-        synchronized (sharedErrors) {
-            sharedErrors.addAll(errors);
+        flushPending(errors);
+        publishErrors(errors);
+    }
+
+    // Validate and save one tokenized Customer row, recording any error
+    public void processCustomerRow(CsvTokenizer fields, List<Map<String, String>> errors) {
+        if (!prefilterCustomer(fields, errors)) {
+            return;
+        }
+        Customer customer = bindCustomer(fields, errors);
+        if (customer != null && checkCustomer(customer, fields::toArray, errors)
+                && claimCustomer(customer, fields::toArray, errors)) {
+            if (persister != null) {
+                // The tokenizer moves on to the next row, keep this row's fields for an error record
+                String[] data = fields.toArray();
+                pendingCustomers.add(customer);
+                pendingCustomerFields.add(() -> data);
+                if (pendingCustomers.size() >= persister.commitInterval()) {
+                    flushPending(errors);
+                }
+            } else {
+                persistCustomer(customer, fields::toArray, errors);
+            }
         }
+    }
 
-        // Save errors to JSON file if there are any
-        if (!sharedErrors.isEmpty()) {
-            logger.info("Saving {} errors to JSON file", sharedErrors.size());
-            saveErrorsToJson(sharedErrors);
-        } else {
-            logger.info("No errors to save");
+    // Validate and save one tokenized Account row, recording any error
+    public void processAccountRow(CsvTokenizer fields, List<Map<String, String>> errors) {
+        if (!prefilterAccount(fields, errors)) {
+            return;
+        }
+        Account account = bindAccount(fields, errors);
+        if (account != null && checkAccount(account, fields::toArray, errors)
+                && claimAccount(account, fields::toArray, errors)) {
+            if (persister != null) {
+                String[] data = fields.toArray();
+                pendingAccounts.add(account);
+                pendingAccountFields.add(() -> data);
+                if (pendingAccounts.size() >= persister.commitInterval()) {
+                    flushPending(errors);
+                }
+            } else {
+                persistAccount(account, fields::toArray, errors);
+            }
         }
     }
 
-    // Check if the row is the CSV header
-    private boolean isHeaderRow(String[] fields, String expectedFirstField) {
-        return fields.length > 0 && fields[0].trim().equalsIgnoreCase(expectedFirstField);
+    // The steps of processCustomerRow, also run as separate stages by StagedCsvPipeline.
+    // fields supplies the raw row for error records and is only called on the error path.
+
+    // Reject a row whose encrypted fields cannot decrypt, or cannot hold values that pass validation,
+    // before any cipher work; returns false if it was rejected, the error is recorded as binding or
+    // validation would have
+    public boolean prefilterCustomer(CsvTokenizer fields, List<Map<String, String>> errors) {
+        return prefilter("Customer", customerBinder.precheck(fields), fields, errors);
     }
 
-    // Create Account object from CSV fields
-    private Account createAccountFromFields(String[] fields) {
-        if (fields.length < 6) {
-            throw new IllegalArgumentException("Insufficient fields for Account");
+    // Decrypt and build the Customer from a tokenized row; null if that failed, the error is recorded
+    public Customer bindCustomer(CsvTokenizer fields, List<Map<String, String>> errors) {
+        try {
+            Customer customer = createCustomerFromFields(fields);
+            progress.rowDecrypted();
+            return customer;
+        } catch (Exception e) {
+            recordProcessingError("Customer", fields.toArray(), errors, e);
+            return null;
         }
+    }
 
-        Account account = new Account();
+    // Returns false if the Customer is invalid, the error is recorded
+    public boolean checkCustomer(Customer customer, Supplier<String[]> fields, List<Map<String, String>> errors) {
         try {
-            // Decrypt the accountNumber field
-            String encryptedAccountNumber = fields[0];
-            if (encryptedAccountNumber != null) {
-                encryptedAccountNumber = encryptedAccountNumber.trim();
-            } else {
-                throw new IllegalArgumentException("Account number is missing or null.");
+            if (validateCustomer(customer)) {
+                progress.rowValidated();
+                return true;
             }
-            String decryptedAccountNumber = EncryptionUtil.decrypt(encryptedAccountNumber);
-            if (decryptedAccountNumber == null || decryptedAccountNumber.trim().isEmpty()) {
-                throw new IllegalArgumentException("Decrypted account number is null or empty.");
-            }
-            account.setAccountNumber(decryptedAccountNumber); // ACCOUNT_NUMBER
+            errors.add(createErrorMap("Customer", "400", "Validation Error", "Customer validation failed", fields.get()));
+            logger.warn("Validation failed for Customer: {}", customer);
+        } catch (Exception e) {
+            recordProcessingError("Customer", fields.get(), errors, e);
+        }
+        return false;
+    }
 
-            // Handle account type
-            String accountTypeStr = fields[1];
-            if (accountTypeStr != null) {
-                accountTypeStr = accountTypeStr.trim();
-            } else {
-                throw new IllegalArgumentException("Account type is missing or null.");
-            }
-            account.setAccountType(Integer.parseInt(accountTypeStr)); // ACCOUNT_TYPE
+    // Returns false if the customer id is stored already or taken by another row of the job; the
+    // error is recorded as the duplicate the insert would have failed with
+    public boolean claimCustomer(Customer customer, Supplier<String[]> fields, List<Map<String, String>> errors) {
+        if (keys == null || keys.claimCustomerId(customer.getCustomer_Id())) {
+            return true;
+        }
+        String[] data = fields.get();
+        errors.add(createErrorMap("Customer", "409", "Data Integrity Error", "Duplicate Customer ID", data));
+        logger.warn("Duplicate Customer ID for line: {}", String.join(",", data));
+        return false;
+    }
 
-            // Handle account limit
-            String accountLimitStr = fields[2];
-            if (accountLimitStr != null) {
-                accountLimitStr = accountLimitStr.trim();
-            } else {
-                throw new IllegalArgumentException("Account limit is missing or null.");
+    public void persistCustomer(Customer customer, Supplier<String[]> fields, List<Map<String, String>> errors) {
+        try {
+            Customer saved = customerRepository.save(customer);
+            if (customerIndex != null) {
+                customerIndex.put(customer.getCustomer_Id(), saved != null ? saved : customer);
             }
-            account.setAccountlimit(Double.parseDouble(accountLimitStr)); // ACCOUNT_LIMIT
+            progress.rowPersisted();
+            logger.info("Saved Customer: {}", customer);
+        } catch (DataIntegrityViolationException e) {
+            String[] data = fields.get();
+            errors.add(createErrorMap("Customer", "409", "Data Integrity Error", "Duplicate Customer ID", data));
+            logger.error("Duplicate Customer ID for line: {}", String.join(",", data), e);
+        } catch (Exception e) {
+            recordProcessingError("Customer", fields.get(), errors, e);
+        }
+    }
+
+    public boolean prefilterAccount(CsvTokenizer fields, List<Map<String, String>> errors) {
+        return prefilter("Account", accountBinder.precheck(fields), fields, errors);
+    }
 
-            // Decrypt the balance field
-            String encryptedBalance = fields[3];
-            if (encryptedBalance != null) {
-                encryptedBalance = encryptedBalance.trim();
+    // Save the rows processCustomerRow/processAccountRow held back for a batch; customers first,
+    // accounts may reference them
+    public void flushPending(List<Map<String, String>> errors) {
+        if (!pendingCustomers.isEmpty()) {
+            persistCustomers(pendingCustomers, pendingCustomerFields, errors);
+            pendingCustomers.clear();
+            pendingCustomerFields.clear();
+        }
+        if (!pendingAccounts.isEmpty()) {
+            persistAccounts(pendingAccounts, pendingAccountFields, errors);
+            pendingAccounts.clear();
+            pendingAccountFields.clear();
+        }
+    }
+
+    // Save validated customers, through the persistence engine if there is one. fields.get(i) supplies the
+    // raw row of customers.get(i) for error records.
+    public void persistCustomers(List<Customer> customers, List<Supplier<String[]>> fields,
+                                 List<Map<String, String>> errors) {
+        if (persister == null) {
+            for (int i = 0; i < customers.size(); i++) {
+                persistCustomer(customers.get(i), fields.get(i), errors);
+            }
+            return;
+        }
+        // Only the failing rows are left out, classified as a single save would have been
+        BitSet failed = new BitSet(customers.size());
+        persister.persistCustomers(customers, (index, e) -> {
+            failed.set(index);
+            if (keys != null) {
+                keys.releaseCustomerId(customers.get(index).getCustomer_Id());
+            }
+            if (e instanceof DataIntegrityViolationException) {
+                String[] data = fields.get(index).get();
+                errors.add(createErrorMap("Customer", "409", "Data Integrity Error", "Duplicate Customer ID", data));
+                logger.error("Duplicate Customer ID for line: {}", String.join(",", data), e);
             } else {
-                throw new IllegalArgumentException("Balance is missing or null.");
+                recordProcessingError("Customer", fields.get(index).get(), errors, e);
             }
-            String decryptedBalance = EncryptionUtil.decrypt(encryptedBalance);
-            if (decryptedBalance == null || decryptedBalance.trim().isEmpty()) {
-                throw new IllegalArgumentException("Decrypted balance is null or empty.");
+        });
+        for (int i = 0; i < customers.size(); i++) {
+            if (!failed.get(i)) {
+                if (keys != null) {
+                    keys.customerIdSaved(customers.get(i).getCustomer_Id());
+                }
+                if (customerIndex != null) {
+                    customerIndex.put(customers.get(i).getCustomer_Id(), customers.get(i));
+                }
+                progress.rowPersisted();
             }
-            double balance = Double.parseDouble(decryptedBalance); // Convert to double
-            account.setBalance(balance); // BALANCE
+        }
+    }
 
-            // Handle open date
-            String openDateStr = fields[4];
-            if (openDateStr != null) {
-                openDateStr = openDateStr.trim();
+    public void persistAccounts(List<Account> accounts, List<Supplier<String[]>> fields,
+                                List<Map<String, String>> errors) {
+        if (persister == null) {
+            for (int i = 0; i < accounts.size(); i++) {
+                persistAccount(accounts.get(i), fields.get(i), errors);
+            }
+            return;
+        }
+        BitSet failed = new BitSet(accounts.size());
+        persister.persistAccounts(accounts, (index, e) -> {
+            failed.set(index);
+            if (keys != null) {
+                keys.releaseAccountNumber(accounts.get(index).getAccountNumber());
+            }
+            if (e instanceof DataIntegrityViolationException) {
+                String[] data = fields.get(index).get();
+                logger.error("Data Integrity Violation while processing Account line: {}", String.join(",", data), e);
+                errors.add(createErrorMap("Account", "409", "Data Integrity Error", "Data Integrity Violation", data));
             } else {
-                throw new IllegalArgumentException("Open date is missing or null.");
+                recordProcessingError("Account", fields.get(index).get(), errors, e);
             }
-            account.setOpenDate(new Date(parseDate(openDateStr).getTime())); // OPEN_DATE
+        });
+        for (int i = 0; i < accounts.size(); i++) {
+            if (!failed.get(i)) {
+                if (keys != null) {
+                    keys.accountNumberSaved(accounts.get(i).getAccountNumber());
+                }
+                progress.rowPersisted();
+            }
+        }
+    }
 
-            // Assuming CUSTOMER_ID is a foreign key, handle accordingly
-            String customerIdStr = fields[5];
-            if (customerIdStr != null) {
-                customerIdStr = customerIdStr.trim();
-            } else {
-                throw new IllegalArgumentException("Customer ID is missing or null.");
+    // Decrypt and build the Account from a tokenized row; null if that failed, the error is recorded
+    public Account bindAccount(CsvTokenizer fields, List<Map<String, String>> errors) {
+        try {
+            Account account = createAccountFromFields(fields);
+            progress.rowDecrypted();
+            return account;
+        } catch (Exception e) {
+            recordProcessingError("Account", fields.toArray(), errors, e);
+            return null;
+        }
+    }
+
+    // Returns false if the Account is invalid, the error is recorded
+    public boolean checkAccount(Account account, Supplier<String[]> fields, List<Map<String, String>> errors) {
+        try {
+            if (validateAccount(account)) {
+                progress.rowValidated();
+                return true;
             }
-            Long customerId = Long.parseLong(customerIdStr);
-            Customer customer = customerRepository.findById(customerId).orElseThrow(
-                    () -> new IllegalArgumentException("Customer ID not found: " + customerId));
-            account.setCustomer(customer); // Link account to customer
+            errors.add(createErrorMap("Account", "400", "Validation Error", "Account validation failed", fields.get()));
+            logger.warn("Validation failed for Account: {}", account);
         } catch (Exception e) {
-            throw new RuntimeException("Error creating account from fields", e);
+            recordProcessingError("Account", fields.get(), errors, e);
+        }
+        return false;
+    }
+
+    public boolean claimAccount(Account account, Supplier<String[]> fields, List<Map<String, String>> errors) {
+        if (keys == null || keys.claimAccountNumber(account.getAccountNumber())) {
+            return true;
         }
+        String[] data = fields.get();
+        errors.add(createErrorMap("Account", "409", "Data Integrity Error", "Data Integrity Violation", data));
+        logger.warn("Duplicate Account Number for line: {}", String.join(",", data));
+        return false;
+    }
 
-        return account;
+    public void persistAccount(Account account, Supplier<String[]> fields, List<Map<String, String>> errors) {
+        try {
+            logger.info("Attempting to save Account: {}", account);
+            accountRepository.save(account);
+            progress.rowPersisted();
+            logger.info("Saved Account: {}", account);
+        } catch (DataIntegrityViolationException e) {
+            String[] data = fields.get();
+            logger.error("Data Integrity Violation while processing Account line: {}", String.join(",", data), e);
+            errors.add(createErrorMap("Account", "409", "Data Integrity Error", "Data Integrity Violation", data));
+        } catch (Exception e) {
+            recordProcessingError("Account", fields.get(), errors, e);
+        }
     }
 
-    // Create Customer object from CSV fields
-    private Customer createCustomerFromFields(String[] fields) {
-        if (fields.length < 7) {
-            throw new IllegalArgumentException("Insufficient fields for Customer");
+    private boolean prefilter(String fileName, ColumnBinder.Verdict verdict, CsvTokenizer fields,
+                              List<Map<String, String>> errors) {
+        if (verdict == ColumnBinder.Verdict.VALID) {
+            return true;
+        }
+        String[] data = fields.toArray();
+        if (verdict == ColumnBinder.Verdict.INVALID) {
+            errors.add(createErrorMap(fileName, "400", "Validation Error", fileName + " validation failed", data));
+            logger.warn("Validation failed for {} line, encrypted field length out of range: {}", fileName, String.join(",", data));
+        } else {
+            errors.add(createErrorMap(fileName, "500", "Processing Error", "Exception processing " + fileName + " line", data));
+            logger.error("Exception processing {} line, encrypted field is not ciphertext: {}", fileName, String.join(",", data));
+        }
+        return false;
+    }
+
+    private void recordProcessingError(String fileName, String[] data, List<Map<String, String>> errors, Exception e) {
+        errors.add(createErrorMap(fileName, "500", "Processing Error", "Exception processing " + fileName + " line", data));
+        logger.error("Exception processing {} line: {}", fileName, String.join(",", data), e);
+    }
+
+    // Approximate input size of the lines, for the progress estimate
+    static long inputLength(List<String> lines) {
+        long length = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            length += lines.get(i).length() + 1; // Plus the line break
         }
+        return length;
+    }
 
-        Customer customer = new Customer();
+    public JobProgress progress() {
+        return progress;
+    }
+
+    // Hand the errors collected by this task over to the job's collector, which writes them to the error file
+    public void publishErrors(List<Map<String, String>> errors) {
+        sharedErrors.addAll(errors);
+    }
+
+    // Create Account object from CSV fields
+    private Account createAccountFromFields(CsvTokenizer fields) {
         try {
-            customer.setCustomer_Id(Long.parseLong(fields[0].trim())); // CUSTOMER_ID
-
-            // Decrypt the name field
-            String encryptedName = fields[3].trim();
-            String decryptedName = EncryptionUtil.decrypt(encryptedName);
-            customer.setName(decryptedName); // NAME
-
-            // Decrypt the surname field
-            String encryptedSurname = fields[5].trim();
-            String decryptedSurname = EncryptionUtil.decrypt(encryptedSurname);
-            customer.setSurname(decryptedSurname); // SURNAME
-
-            // Decrypt the nationalId field
-            String encryptedNationalId = fields[4].trim();
-            String decryptedNationalId = EncryptionUtil.decrypt(encryptedNationalId);
-            customer.setNationalId(decryptedNationalId); // NATIONAL_ID
-
-            customer.setAddress(fields[1].trim()); // ADDRESS
-            customer.setBirthDate(new Date(parseDate(fields[2].trim()).getTime())); // BIRTH_DATE
-            customer.setZipCode(fields[6].trim()); // ZIP_CODE
+            return accountBinder.bind(fields);
         } catch (Exception e) {
-            throw new RuntimeException("Error creating customer from fields", e);
+            throw new RuntimeException("Error creating account from fields", e);
         }
+    }
 
-        return customer;
+    // Create Customer object from CSV fields
+    private Customer createCustomerFromFields(CsvTokenizer fields) {
+        try {
+            return customerBinder.bind(fields);
+        } catch (Exception e) {
+            throw new RuntimeException("Error creating customer from fields", e);
+        }
     }
 
     // Account validation
@@ -241,7 +466,7 @@ public class CsvProcessorTask implements Runnable {
             logger.warn("Account validation failed: balance exceeds limit for {}", account);
             isValid = false;
         }
-        if (account.getAccountNumber().length() != 22) {
+        if (account.getAccountNumber().length() != EntityBinders.ACCOUNT_NUMBER_LENGTH) {
             logger.warn("Account validation failed: account number length is not 22 for {}", account);
             isValid = false;
         }
@@ -274,7 +499,7 @@ public class CsvProcessorTask implements Runnable {
             isValid = false;  // Valid Customer
         }
 
-        if (customer.getNationalId().length() != 10) {
+        if (customer.getNationalId().length() != EntityBinders.NATIONAL_ID_LENGTH) {
             logger.warn("Customer validation failed: national ID length is not 10 for {}", customer);
             isValid = false;
         }
@@ -282,24 +507,6 @@ public class CsvProcessorTask implements Runnable {
         return isValid;
     }
 
-    // Parse the date from string
-    private java.util.Date parseDate(String dateStr) {
-        SimpleDateFormat[] formats = {
-                new SimpleDateFormat("yyyy-MM-dd"),
-                new SimpleDateFormat("d/M/yyyy"),
-                new SimpleDateFormat("dd/MM/yyyy")
-        };
-
-        for (SimpleDateFormat format : formats) {
-            try {
-                return format.parse(dateStr);
-            } catch (ParseException e) {
-                // Ignore and try next format
-            }
-        }
-        throw new IllegalArgumentException("Date format not recognized for date: " + dateStr);
-    }
-
     // Create a map for error logging
     public Map<String, String> createErrorMap(String file_name, String error_code, String error_classification_name, String error_description, String[] fields) {
         Map<String, String> error = new HashMap<>();
@@ -312,7 +519,9 @@ public class CsvProcessorTask implements Runnable {
         if (fields != null) {
             StringBuilder decryptedData = new StringBuilder();
             for (String field : fields) {
-                String decryptedField = EncryptionUtil.decrypt(field.trim());
+                // Fields that cannot be ciphertext, like ids and dates, are not handed to the cipher to fail there
+                String decryptedField = EncryptionUtil.ciphertextLength(field.trim()) < 0 ? null
+                        : EncryptionUtil.decrypt(field.trim());
                 if (decryptedField == null || decryptedField.trim().isEmpty()) {
                     decryptedField = field.trim(); // Use original field if decryption fails
                 }
@@ -323,16 +532,4 @@ public class CsvProcessorTask implements Runnable {
 
         return error;
     }
-
-    // Save error list to JSON file
-    private void saveErrorsToJson(List<Map<String, String>> errors) {
-        try (FileWriter fileWriter = new FileWriter(ERROR_FILE_PATH)) {
-            ObjectMapper objectMapper = new ObjectMapper();
-            objectMapper.enable(SerializationFeature.INDENT_OUTPUT); // Enable pretty print
-            objectMapper.writeValue(fileWriter, errors);
-            logger.info("Errors saved to {}", ERROR_FILE_PATH);
-        } catch (IOException e) {
-            logger.error("Error saving errors to JSON file", e);
-        }
-    }
 }
\ No newline at end of file
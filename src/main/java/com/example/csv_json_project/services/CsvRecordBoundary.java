@@ -0,0 +1,78 @@
+package com.example.csv_json_project.services;
+
+// Finds where CSV records end, reading quotes the way CsvTokenizer does: a quote opens a quoted
+// field only as the first character of a field, "" inside it is an escaped quote, and anything
+// between its closing quote and the next delimiter is content. A quote anywhere else, e.g. O"Brien,
+// is content too. A newline ends the record unless a quoted field is open.
+public final class CsvRecordBoundary {
+
+    public static final int FIELD_START = 0;
+    public static final int UNQUOTED = 1;
+    public static final int QUOTED = 2;
+    // After a quote inside a quoted field: the field is closed unless another quote follows
+    public static final int QUOTE_IN_QUOTED = 3;
+    // A quoted field of a record joined across lines closed with content after it, e.g. "a"b.
+    // CsvTokenizer accepts that within one line; across lines it is taken for a stray quote that
+    // opened a field which is never closed.
+    public static final int MALFORMED = -1;
+
+    // Longest record read across lines, in characters or bytes. A quote still open after that, or
+    // at the end of the input, fails its first line alone as malformed; the lines after it are read
+    // again as records of their own.
+    public static final int MAX_RECORD_LENGTH = 64 * 1024;
+
+    private CsvRecordBoundary() {
+    }
+
+    // The state after c; a newline read in any state but QUOTED ended the record
+    public static int next(int state, int c) {
+        if (state == QUOTED) {
+            return c == '"' ? QUOTE_IN_QUOTED : QUOTED;
+        }
+        if (state == QUOTE_IN_QUOTED && c == '"') {
+            return QUOTED;
+        }
+        if (c == ',' || c == '\n') {
+            return FIELD_START;
+        }
+        return state == FIELD_START && c == '"' ? QUOTED : UNQUOTED;
+    }
+
+    // Like next, for a record joined across lines: MALFORMED once a quoted field closes with content after it
+    public static int nextJoined(int state, int c) {
+        int next = next(state, c);
+        return state == QUOTE_IN_QUOTED && next == UNQUOTED && c != '\r' ? MALFORMED : next;
+    }
+
+    // The state after the characters of line
+    public static int scan(int state, CharSequence line) {
+        for (int i = 0; i < line.length(); i++) {
+            state = next(state, line.charAt(i));
+        }
+        return state;
+    }
+
+    // The state after the characters of line, read as a continuation of a record; MALFORMED once a
+    // quoted field closes with content after it
+    public static int scanJoined(int state, CharSequence line) {
+        for (int i = 0; i < line.length() && state != MALFORMED; i++) {
+            state = nextJoined(state, line.charAt(i));
+        }
+        return state;
+    }
+
+    public static int scanJoined(int state, byte[] data, int from, int to) {
+        for (int i = from; i < to && state != MALFORMED; i++) {
+            state = nextJoined(state, data[i]);
+        }
+        return state;
+    }
+
+    // The state after data[from, to)
+    public static int scan(int state, byte[] data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            state = next(state, data[i]);
+        }
+        return state;
+    }
+}
@@ -0,0 +1,313 @@
+package com.example.csv_json_project.services;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// RFC 4180 tokenizer for a single CSV line. Field contents are exposed as CharSequence
+// slices over reusable buffers, so one instance per worker tokenizes any number of lines
+// without allocating. Each field owns one reusable slice, valid until the same field is
+// accessed again or the next line is tokenized.
+//
+// Lines can be given as characters or as raw UTF-8 bytes. In byte mode unquoted fields are
+// sliced straight out of the caller's array (which must stay untouched until the next line)
+// and delimiters are located with a DelimiterScanner, so wide fields are skipped in bulk.
+// Byte-mode slices index bytes (fine for the ASCII columns they are parsed from) while
+// toString decodes them as UTF-8.
+public class CsvTokenizer {
+
+    private static final char DELIMITER = ',';
+    private static final char QUOTE = '"';
+
+    private char[] buffer = new char[256];
+    private byte[] byteBuffer = new byte[256];
+    private byte[] byteSource;
+    private boolean byteMode;
+
+    private int[] starts = new int[16];
+    private int[] ends = new int[16];
+    private boolean[] unescaped = new boolean[16];
+    private Slice[] slices = new Slice[16];
+    private int fieldCount;
+
+    // One tokenizer per worker thread, its buffers are reused across rows, batches and tasks
+    private static final ThreadLocal<CsvTokenizer> PER_THREAD = ThreadLocal.withInitial(CsvTokenizer::new);
+
+    // The calling thread's tokenizer; its fields are valid until the thread tokenizes the next line
+    public static CsvTokenizer perThread() {
+        return PER_THREAD.get();
+    }
+
+    // Split the line into fields; returns the number of fields
+    public int tokenize(CharSequence line) {
+        int length = line.length();
+        if (buffer.length < length) {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+        }
+        byteMode = false;
+        byteSource = null;
+        fieldCount = 0;
+
+        int pos = 0;
+        int out = 0;
+        while (true) {
+            int fieldStart = out;
+            if (pos < length && line.charAt(pos) == QUOTE) {
+                // Quoted field: copy until the closing quote, "" is an escaped quote
+                pos++;
+                boolean closed = false;
+                while (pos < length) {
+                    char c = line.charAt(pos++);
+                    if (c == QUOTE) {
+                        if (pos < length && line.charAt(pos) == QUOTE) {
+                            buffer[out++] = QUOTE;
+                            pos++;
+                        } else {
+                            closed = true;
+                            break;
+                        }
+                    } else {
+                        buffer[out++] = c;
+                    }
+                }
+                if (!closed) {
+                    throw new IllegalArgumentException("Unterminated quoted field in CSV line");
+                }
+                // Be lenient about anything between the closing quote and the next delimiter
+                while (pos < length && line.charAt(pos) != DELIMITER) {
+                    buffer[out++] = line.charAt(pos++);
+                }
+            } else {
+                while (pos < length) {
+                    char c = line.charAt(pos);
+                    if (c == DELIMITER) {
+                        break;
+                    }
+                    buffer[out++] = c;
+                    pos++;
+                }
+            }
+            addField(fieldStart, out, true);
+
+            if (pos >= length) {
+                break;
+            }
+            pos++; // Skip the delimiter
+        }
+        return fieldCount;
+    }
+
+    // Split the UTF-8 encoded line data[from, to) into fields; returns the number of fields
+    public int tokenize(byte[] data, int from, int to, DelimiterScanner scanner) {
+        int length = to - from;
+        if (byteBuffer.length < length) {
+            byteBuffer = new byte[Math.max(length, byteBuffer.length * 2)];
+        }
+        byteMode = true;
+        byteSource = data;
+        fieldCount = 0;
+
+        int pos = from;
+        int out = 0;
+        while (true) {
+            if (pos < to && data[pos] == QUOTE) {
+                // Quoted field: unescape into the scratch buffer
+                int fieldStart = out;
+                pos++;
+                boolean closed = false;
+                while (pos < to) {
+                    int quote = nextQuote(data, pos, to, scanner);
+                    System.arraycopy(data, pos, byteBuffer, out, quote - pos);
+                    out += quote - pos;
+                    if (quote == to) {
+                        pos = to;
+                        break;
+                    }
+                    if (quote + 1 < to && data[quote + 1] == QUOTE) {
+                        byteBuffer[out++] = (byte) QUOTE;
+                        pos = quote + 2;
+                    } else {
+                        closed = true;
+                        pos = quote + 1;
+                        break;
+                    }
+                }
+                if (!closed) {
+                    throw new IllegalArgumentException("Unterminated quoted field in CSV line");
+                }
+                // Be lenient about anything between the closing quote and the next delimiter
+                int end = nextComma(data, pos, to, scanner);
+                System.arraycopy(data, pos, byteBuffer, out, end - pos);
+                out += end - pos;
+                pos = end;
+                addField(fieldStart, out, true);
+            } else {
+                // Unquoted field: slice it straight out of the input
+                int end = nextComma(data, pos, to, scanner);
+                addField(pos, end, false);
+                pos = end;
+            }
+
+            if (pos >= to) {
+                break;
+            }
+            pos++; // Skip the delimiter
+        }
+        return fieldCount;
+    }
+
+    public int size() {
+        return fieldCount;
+    }
+
+    // Raw field content, exactly as unescaped from the line
+    public CharSequence field(int index) {
+        checkIndex(index);
+        return slices[index].set(index, starts[index], ends[index]);
+    }
+
+    // Field content without leading and trailing whitespace
+    public CharSequence trimmed(int index) {
+        checkIndex(index);
+        Slice slice = slices[index].set(index, starts[index], ends[index]);
+        int start = 0;
+        int end = slice.length();
+        while (start < end && slice.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && slice.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        return slice.set(index, starts[index] + start, starts[index] + end);
+    }
+
+    public String trimmedString(int index) {
+        return trimmed(index).toString();
+    }
+
+    public boolean isBlank(int index) {
+        return trimmed(index).length() == 0;
+    }
+
+    public boolean equalsIgnoreCase(int index, String value) {
+        CharSequence field = trimmed(index);
+        if (field.length() != value.length()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char a = field.charAt(i);
+            char b = value.charAt(i);
+            if (a != b && Character.toUpperCase(a) != Character.toUpperCase(b)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long parseLong(int index) {
+        CharSequence field = trimmed(index);
+        return Long.parseLong(field, 0, field.length(), 10);
+    }
+
+    public int parseInt(int index) {
+        CharSequence field = trimmed(index);
+        return Integer.parseInt(field, 0, field.length(), 10);
+    }
+
+    public double parseDouble(int index) {
+        return Double.parseDouble(trimmedString(index));
+    }
+
+    // Copy the fields out as Strings; only meant for the error path
+    public String[] toArray() {
+        String[] fields = new String[fieldCount];
+        for (int i = 0; i < fieldCount; i++) {
+            fields[i] = field(i).toString();
+        }
+        return fields;
+    }
+
+    // Next comma outside of quotes; a stray quote inside an unquoted field is kept as content
+    private int nextComma(byte[] data, int from, int to, DelimiterScanner scanner) {
+        int pos = scanner.nextDelimiter(data, from, to);
+        while (pos < to && data[pos] == QUOTE) {
+            pos = scanner.nextDelimiter(data, pos + 1, to);
+        }
+        return pos;
+    }
+
+    // Next quote inside a quoted field, where commas are content
+    private int nextQuote(byte[] data, int from, int to, DelimiterScanner scanner) {
+        int pos = scanner.nextDelimiter(data, from, to);
+        while (pos < to && data[pos] == DELIMITER) {
+            pos = scanner.nextDelimiter(data, pos + 1, to);
+        }
+        return pos;
+    }
+
+    private void addField(int start, int end, boolean inBuffer) {
+        if (fieldCount == starts.length) {
+            int newLength = starts.length * 2;
+            starts = Arrays.copyOf(starts, newLength);
+            ends = Arrays.copyOf(ends, newLength);
+            unescaped = Arrays.copyOf(unescaped, newLength);
+            slices = Arrays.copyOf(slices, newLength);
+        }
+        if (slices[fieldCount] == null) {
+            slices[fieldCount] = new Slice();
+        }
+        starts[fieldCount] = start;
+        ends[fieldCount] = end;
+        unescaped[fieldCount] = inBuffer;
+        fieldCount++;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field index " + index + " out of range for " + fieldCount + " fields");
+        }
+    }
+
+    // Reusable view over a field, backed by the char buffer, the byte scratch buffer or the input bytes
+    private class Slice implements CharSequence {
+
+        private char[] chars;
+        private byte[] bytes;
+        private int start;
+        private int end;
+
+        Slice set(int index, int start, int end) {
+            if (byteMode) {
+                this.chars = null;
+                this.bytes = unescaped[index] ? byteBuffer : byteSource;
+            } else {
+                this.chars = buffer;
+                this.bytes = null;
+            }
+            this.start = start;
+            this.end = end;
+            return this;
+        }
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+        @Override
+        public char charAt(int index) {
+            return chars != null ? chars[start + index] : (char) (bytes[start + index] & 0xff);
+        }
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return toString().substring(from, to);
+        }
+
+        @Override
+        public String toString() {
+            return chars != null
+                    ? new String(chars, start, end - start)
+                    : new String(bytes, start, end - start, StandardCharsets.UTF_8);
+        }
+    }
+}
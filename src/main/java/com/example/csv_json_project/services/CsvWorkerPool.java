@@ -0,0 +1,168 @@
+package com.example.csv_json_project.services;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Worker threads shared by all CSV jobs. In platform mode this is a fixed pool of max-workers
+// threads; in virtual mode every task gets its own virtual thread and a semaphore caps how many
+// of them run at once; in forkjoin mode it is a work-stealing pool of max-workers threads, on
+// which jobs split their chunks adaptively (see AdaptiveChunkTask). Either way at most
+// max-workers tasks run concurrently, however many uploads are in flight.
+@Component
+public class CsvWorkerPool {
+
+    public static final String MODE_PLATFORM = "platform";
+    public static final String MODE_VIRTUAL = "virtual";
+    public static final String MODE_FORK_JOIN = "forkjoin";
+
+    @Value("${csv.executor.mode:platform}")
+    private String mode;
+
+    @Value("${csv.executor.max-workers:0}")
+    private int configuredMaxWorkers;
+
+    private ExecutorService executorService;
+    private Semaphore workerPermits; // Only used in virtual mode
+    private int maxWorkers;
+
+    private static final Logger logger = LoggerFactory.getLogger(CsvWorkerPool.class);
+
+    @PostConstruct
+    public void start() {
+        maxWorkers = configuredMaxWorkers > 0 ? configuredMaxWorkers : Runtime.getRuntime().availableProcessors();
+        if (MODE_VIRTUAL.equalsIgnoreCase(mode)) {
+            executorService = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("csv-worker-", 1).factory());
+            workerPermits = new Semaphore(maxWorkers);
+        } else if (MODE_FORK_JOIN.equalsIgnoreCase(mode)) {
+            executorService = new ForkJoinPool(maxWorkers, pool -> {
+                ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("csv-worker-" + (thread.getPoolIndex() + 1));
+                return thread;
+            }, null, false);
+        } else if (MODE_PLATFORM.equalsIgnoreCase(mode)) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            executorService = Executors.newFixedThreadPool(maxWorkers, task -> {
+                Thread thread = new Thread(task, "csv-worker-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        } else {
+            throw new IllegalStateException("Unknown csv.executor.mode: " + mode);
+        }
+        logger.info("CSV worker pool started in {} mode with {} workers", mode, maxWorkers);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executorService.shutdown();
+    }
+
+    public int maxWorkers() {
+        return maxWorkers;
+    }
+
+    // Tasks run on a work-stealing pool and may fork AdaptiveChunkTasks
+    public boolean isForkJoin() {
+        return executorService instanceof ForkJoinPool;
+    }
+
+    // Tasks of one job phase; at most maxInFlight of them are queued or running at a time
+    public TaskGroup newTaskGroup(int maxInFlight) {
+        return new TaskGroup(maxInFlight);
+    }
+
+    // Submits tasks to the shared pool and tracks their completion. Submitting blocks while the group
+    // has maxInFlight unfinished tasks, which keeps the reader from running ahead of the workers.
+    // A task that fails does not stop the others; its failure is rethrown once all of them are done.
+    public class TaskGroup implements Executor {
+
+        private final int capacity;
+        private final Semaphore inFlight;
+        private final WorkerUtilization utilization = new WorkerUtilization();
+        // First failure of a task, later ones are added to it as suppressed
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+        private TaskGroup(int capacity) {
+            if (capacity < 1) {
+                throw new IllegalArgumentException("A task group needs room for at least one task");
+            }
+            this.capacity = capacity;
+            this.inFlight = new Semaphore(capacity);
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            try {
+                inFlight.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting for a free worker", e);
+            }
+            try {
+                executorService.execute(() -> runTask(task));
+            } catch (RejectedExecutionException e) {
+                inFlight.release();
+                throw e;
+            }
+        }
+
+        // Block until every task submitted to the group has finished, then rethrow the first failure of one
+        public void awaitCompletion() {
+            inFlight.acquireUninterruptibly(capacity);
+            inFlight.release(capacity);
+            Throwable e = failure.get();
+            if (e instanceof Error error) {
+                throw error;
+            }
+            if (e != null) {
+                throw (RuntimeException) e;
+            }
+        }
+
+        // Busy time per worker; in forkjoin mode recorded per chunk by AdaptiveChunkTask
+        public WorkerUtilization utilization() {
+            return utilization;
+        }
+
+        private void runTask(Runnable task) {
+            try {
+                if (workerPermits != null) {
+                    workerPermits.acquireUninterruptibly();
+                }
+                try {
+                    long start = System.nanoTime();
+                    task.run();
+                    if (!isForkJoin()) {
+                        utilization.record(System.nanoTime() - start);
+                    }
+                } finally {
+                    if (workerPermits != null) {
+                        workerPermits.release();
+                    }
+                }
+            } catch (RuntimeException | Error e) {
+                logger.error("CSV worker task failed", e);
+                if (!failure.compareAndSet(null, e)) {
+                    failure.get().addSuppressed(e);
+                }
+            } finally {
+                inFlight.release();
+            }
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.example.csv_json_project.services;
+
+import com.example.csv_json_project.model.Customer;
+
+// Customers saved during the customer phase of a job, keyed by their primitive id.
+// Open addressing over parallel long/Customer arrays, so a lookup neither boxes the id
+// nor touches the database. Writes are synchronized; reads are lock-free and only safe
+// once every writer has finished, i.e. in the account phase after the customer phase
+// has completed.
+public class CustomerIndex {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+    private Customer[] values; // A null value marks a free slot
+    private int size;
+
+    public CustomerIndex() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public CustomerIndex(int expectedSize) {
+        allocate(tableSizeFor(Math.max(expectedSize, 1)));
+    }
+
+    public synchronized void put(long customerId, Customer customer) {
+        if (customer == null) {
+            throw new IllegalArgumentException("Customer must not be null");
+        }
+        if (size + 1 > keys.length * LOAD_FACTOR) {
+            resize();
+        }
+        if (insert(keys, values, customerId, customer)) {
+            size++;
+        }
+    }
+
+    // The customer saved under the id, or null if none was
+    public Customer get(long customerId) {
+        long[] keys = this.keys;
+        Customer[] values = this.values;
+        int mask = keys.length - 1;
+        for (int slot = slot(customerId, mask); values[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot] == customerId) {
+                return values[slot];
+            }
+        }
+        return null;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private void resize() {
+        long[] oldKeys = keys;
+        Customer[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                insert(keys, values, oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Customer[capacity];
+    }
+
+    // Returns true if the id was not present yet
+    private static boolean insert(long[] keys, Customer[] values, long key, Customer value) {
+        int mask = keys.length - 1;
+        int slot = slot(key, mask);
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        return true;
+    }
+
+    // Spread sequential ids over the table
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private static int tableSizeFor(int expectedSize) {
+        int needed = (int) Math.min(1 << 30, (long) Math.ceil(expectedSize / LOAD_FACTOR));
+        return Math.max(Integer.highestOneBit(needed - 1) << 1, 16);
+    }
+}
@@ -0,0 +1,33 @@
+package com.example.csv_json_project.services;
+
+import org.slf4j.LoggerFactory;
+
+// Finds the structural bytes of a CSV input (comma, quote and newline).
+// The vectorized implementation needs the JVM to be started with
+// --add-modules jdk.incubator.vector; without it the scalar loop is used.
+public interface DelimiterScanner {
+
+    byte COMMA = ',';
+    byte QUOTE = '"';
+    byte NEWLINE = '\n';
+
+    // Index of the next comma or quote in [from, to), or to if there is none
+    int nextDelimiter(byte[] data, int from, int to);
+
+    // Index of the next newline in [from, to), or to if there is none
+    int nextNewline(byte[] data, int from, int to);
+
+    String name();
+
+    // Pick the vectorized scanner when requested and available, the scalar one otherwise
+    static DelimiterScanner create(boolean simd) {
+        if (simd && ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return new VectorDelimiterScanner();
+            } catch (LinkageError e) {
+                LoggerFactory.getLogger(DelimiterScanner.class).warn("Vector API unavailable, using scalar delimiter scanning", e);
+            }
+        }
+        return ScalarDelimiterScanner.INSTANCE;
+    }
+}
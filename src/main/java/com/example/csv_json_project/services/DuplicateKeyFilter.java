@@ -0,0 +1,156 @@
+package com.example.csv_json_project.services;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+// Finds duplicate keys of one table, Long customer ids or String account numbers, before a row
+// reaches an insert. Stored keys only set bits of a Bloom filter, no key is kept for them; the
+// exact set holds just the keys of the job's rows still being saved, which move out of it once
+// they are stored. A key the filter has never seen is new without asking the database, and a claim
+// never takes a lock; only a key the filter might have seen is looked up in the table.
+public final class DuplicateKeyFilter<K> {
+
+    private final AtomicLongArray bits;
+    private final long bitCount;
+    private final int hashCount;
+    // Keys of rows the job is saving; arbitrates concurrent claims of one key
+    private final Set<K> inFlight = ConcurrentHashMap.newKeySet();
+    // Exact lookup of a key in the table, e.g. CustomerRepository::existsById
+    private final Predicate<K> stored;
+
+    private final LongAdder claims = new LongAdder();
+    private final LongAdder storedLookups = new LongAdder();
+    private final LongAdder duplicates = new LongAdder();
+
+    // Sized for expectedKeys with about falsePositiveRate of new keys looked up in the table
+    public DuplicateKeyFilter(long expectedKeys, double falsePositiveRate, Predicate<K> stored) {
+        double rate = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long keys = Math.max(1, expectedKeys);
+        long optimalBits = (long) Math.ceil(-keys * Math.log(rate) / (Math.log(2) * Math.log(2)));
+        long words = Math.max(1, (optimalBits + 63) / 64);
+        if (words > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("Too many keys for a Bloom filter: " + expectedKeys);
+        }
+        this.bits = new AtomicLongArray((int) words);
+        this.bitCount = words * 64;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / keys * Math.log(2)));
+        this.stored = stored;
+    }
+
+    // Note a key stored before the job started; only its filter bits are set
+    public void seed(K key) {
+        put(hash(key));
+    }
+
+    // Claims the key for a row about to be saved; false if another row of the job holds it or it is stored
+    public boolean add(K key) {
+        claims.increment();
+        if (!inFlight.add(key)) {
+            duplicates.increment();
+            return false;
+        }
+        // Checked after the claim: a key another row saved and let go of had its bits set before that
+        long hash = hash(key);
+        boolean maybeStored = mightContain(hash);
+        put(hash);
+        if (!maybeStored) {
+            return true;
+        }
+        storedLookups.increment();
+        boolean duplicate;
+        try {
+            duplicate = stored.test(key);
+        } catch (RuntimeException e) {
+            inFlight.remove(key);
+            throw e;
+        }
+        if (duplicate) {
+            inFlight.remove(key);
+            duplicates.increment();
+            return false;
+        }
+        return true;
+    }
+
+    // Forget the claim of a row that could not be saved. Its filter bits stay set, a later claim
+    // of the key only costs a lookup in the table.
+    public void remove(K key) {
+        inFlight.remove(key);
+    }
+
+    // The row holding the key is stored; from now on the table answers for it
+    public void saved(K key) {
+        inFlight.remove(key);
+    }
+
+    // Keys claimed by rows not saved yet
+    public long size() {
+        return inFlight.size();
+    }
+
+    public long duplicates() {
+        return duplicates.sum();
+    }
+
+    // e.g. "12 keys in flight, 3 duplicates, 1.0% of claims looked up in the table"
+    public String stats() {
+        long claimCount = claims.sum();
+        double lookupShare = claimCount > 0 ? 100.0 * storedLookups.sum() / claimCount : 0;
+        return String.format("%d keys in flight, %d duplicates, %.1f%% of claims looked up in the table",
+                size(), duplicates(), lookupShare);
+    }
+
+    // Kirsch-Mitzenmacher: the i-th bit is h1 + i * h2, both halves of the 64-bit hash
+    private boolean mightContain(long hash) {
+        long h1 = hash;
+        long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void put(long hash) {
+        long h1 = hash;
+        long h2 = (hash >>> 32) | 1;
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            if ((bits.get(word) & mask) == 0) {
+                bits.getAndAccumulate(word, mask, (current, set) -> current | set);
+            }
+        }
+    }
+
+    private static long hash(Object key) {
+        return key instanceof Long number ? mix(number) : hash(key.toString());
+    }
+
+    // murmur3 finalizer
+    private static long mix(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    // FNV-1a over the characters, mixed so every bit depends on the whole key
+    private static long hash(CharSequence key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+}
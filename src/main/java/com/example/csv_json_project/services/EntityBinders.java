@@ -0,0 +1,134 @@
+package com.example.csv_json_project.services;
+
+import java.sql.Date;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.function.LongFunction;
+
+import com.example.csv_json_project.model.Account;
+import com.example.csv_json_project.model.Customer;
+import com.example.csv_json_project.springSecurity.DecryptCache;
+import com.example.csv_json_project.springSecurity.EncryptedField;
+import com.example.csv_json_project.springSecurity.EncryptionUtil;
+
+// Column bindings for Customers.csv and Accounts.csv
+public final class EntityBinders {
+
+    public static final String CUSTOMER_KEY_COLUMN = "CUSTOMER_ID";
+    public static final String ACCOUNT_KEY_COLUMN = "ACCOUNT_NUMBER";
+
+    // Lengths the validation requires of the decrypted values
+    public static final int ACCOUNT_NUMBER_LENGTH = 22;
+    public static final int NATIONAL_ID_LENGTH = 10;
+
+    // Column order assumed for files that come without a header row
+    private static final String[] DEFAULT_CUSTOMER_COLUMNS =
+            {"CUSTOMER_ID", "ADDRESS", "BIRTH_DATE", "NAME", "NATIONAL_ID", "SURNAME", "ZIP_CODE"};
+    private static final String[] DEFAULT_ACCOUNT_COLUMNS =
+            {"ACCOUNT_NUMBER", "ACCOUNT_TYPE", "ACCOUNT_LIMIT", "BALANCE", "OPEN_DATE", "CUSTOMER_ID"};
+
+    private EntityBinders() {
+    }
+
+    // A row is the header when it names the file's key column
+    public static boolean isHeader(CsvTokenizer fields, String keyColumn) {
+        for (int i = 0; i < fields.size(); i++) {
+            if (fields.equalsIgnoreCase(i, keyColumn)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Binder for Customers.csv; header may be null for headerless files
+    public static ColumnBinder<Customer> customerBinder(CsvTokenizer header) {
+        return customerBinder(header, null);
+    }
+
+    // Binder for Customers.csv whose enabled encrypted columns go through the decrypt cache
+    public static ColumnBinder<Customer> customerBinder(CsvTokenizer header, DecryptCache decryptCache) {
+        ColumnBinder.Builder<Customer> builder = ColumnBinder.builder("Customer", Customer::new)
+                .decryptCache(decryptCache)
+                .column("CUSTOMER_ID", (customer, fields, column) -> customer.setCustomer_Id(fields.parseLong(column)))
+                // Validation never reads the names, they stay encrypted until something does
+                .column("NAME", (customer, fields, column) -> customer.setEncryptedName(EncryptedField.ofCiphertext(fields.trimmed(column))))
+                .column("SURNAME", (customer, fields, column) -> customer.setEncryptedSurname(EncryptedField.ofCiphertext(fields.trimmed(column))))
+                .encryptedColumn("NATIONAL_ID", (customer, decrypted, slot) -> customer.setNationalId(decrypted.toString(slot)))
+                .column("ADDRESS", (customer, fields, column) -> customer.setAddress(fields.trimmedString(column)))
+                .column("BIRTH_DATE", (customer, fields, column) -> customer.setBirthDate(parseDate(fields.trimmedString(column))))
+                .column("ZIP_CODE", (customer, fields, column) -> customer.setZipCode(fields.trimmedString(column)))
+                .check("NATIONAL_ID", ciphertextOf(NATIONAL_ID_LENGTH));
+        return header != null ? builder.build(header) : builder.build(DEFAULT_CUSTOMER_COLUMNS);
+    }
+
+    // Binder for Accounts.csv; customerResolver links the CUSTOMER_ID column to its Customer
+    public static ColumnBinder<Account> accountBinder(CsvTokenizer header, LongFunction<Customer> customerResolver) {
+        return accountBinder(header, customerResolver, null);
+    }
+
+    // Binder for Accounts.csv whose enabled encrypted columns go through the decrypt cache
+    public static ColumnBinder<Account> accountBinder(CsvTokenizer header, LongFunction<Customer> customerResolver,
+                                                      DecryptCache decryptCache) {
+        ColumnBinder.Builder<Account> builder = ColumnBinder.builder("Account", Account::new)
+                .decryptCache(decryptCache)
+                .encryptedColumn("ACCOUNT_NUMBER", (account, decrypted, slot) -> {
+                    if (decrypted.isBlank(slot)) {
+                        throw new IllegalArgumentException("Decrypted account number is null or empty.");
+                    }
+                    account.setAccountNumber(decrypted.toString(slot));
+                    account.setEncryptedAccountNumber(decrypted.ciphertext(slot));
+                })
+                .column("ACCOUNT_TYPE", (account, fields, column) -> account.setAccountType(fields.parseInt(column)))
+                .column("ACCOUNT_LIMIT", (account, fields, column) -> account.setAccountlimit(fields.parseDouble(column)))
+                .encryptedColumn("BALANCE", (account, decrypted, slot) -> {
+                    if (decrypted.isBlank(slot)) {
+                        throw new IllegalArgumentException("Decrypted balance is null or empty.");
+                    }
+                    account.setBalance(Double.parseDouble(decrypted.toString(slot)));
+                    account.setEncryptedBalance(decrypted.ciphertext(slot));
+                })
+                .column("OPEN_DATE", (account, fields, column) -> account.setOpenDate(parseDate(fields.trimmedString(column))))
+                .column("CUSTOMER_ID", (account, fields, column) -> {
+                    long customerId = fields.parseLong(column);
+                    Customer customer = customerResolver.apply(customerId);
+                    if (customer == null) {
+                        throw new IllegalArgumentException("Customer ID not found: " + customerId);
+                    }
+                    account.setCustomer(customer);
+                })
+                .check("ACCOUNT_NUMBER", ciphertextOf(ACCOUNT_NUMBER_LENGTH))
+                .check("BALANCE", ciphertextOf(-1));
+        return header != null ? builder.build(header) : builder.build(DEFAULT_ACCOUNT_COLUMNS);
+    }
+
+    // Precheck of an encrypted column: MALFORMED if it cannot be ciphertext, which would fail to decrypt,
+    // INVALID if its length cannot hold a value of the required number of chars (-1 for any length)
+    private static ColumnBinder.FieldCheck ciphertextOf(int requiredChars) {
+        return value -> {
+            int length = EncryptionUtil.ciphertextLength(value);
+            if (length < 0) {
+                return ColumnBinder.Verdict.MALFORMED;
+            }
+            return requiredChars < 0 || EncryptionUtil.canHoldChars(length, requiredChars)
+                    ? ColumnBinder.Verdict.VALID : ColumnBinder.Verdict.INVALID;
+        };
+    }
+
+    // Parse the date from string
+    public static Date parseDate(String dateStr) {
+        SimpleDateFormat[] formats = {
+                new SimpleDateFormat("yyyy-MM-dd"),
+                new SimpleDateFormat("d/M/yyyy"),
+                new SimpleDateFormat("dd/MM/yyyy")
+        };
+
+        for (SimpleDateFormat format : formats) {
+            try {
+                return new Date(format.parse(dateStr).getTime());
+            } catch (ParseException e) {
+                // Ignore and try next format
+            }
+        }
+        throw new IllegalArgumentException("Date format not recognized for date: " + dateStr);
+    }
+}
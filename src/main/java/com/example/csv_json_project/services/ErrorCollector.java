@@ -0,0 +1,61 @@
+package com.example.csv_json_project.services;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.example.csv_json_project.exporters.ErrorLogWriter;
+
+// Error records of a single job. Every task or stage worker collects its errors in its own
+// list and hands the whole list over once; handing over is a lock-free queue offer, so workers
+// never wait on each other. With an ErrorLogWriter the lists are streamed to the job's error
+// file as they arrive, otherwise they are kept and merged when read. Either way the collector
+// goes away with the job.
+public class ErrorCollector {
+
+    private final ConcurrentLinkedQueue<List<Map<String, String>>> parts = new ConcurrentLinkedQueue<>();
+    private final LongAdder count = new LongAdder();
+    private final ErrorLogWriter writer;
+
+    // Keep the errors in memory
+    public ErrorCollector() {
+        this(null);
+    }
+
+    // Stream the errors to writer instead of keeping them
+    public ErrorCollector(ErrorLogWriter writer) {
+        this.writer = writer;
+    }
+
+    // Take over a worker's errors; the list must not be modified afterwards
+    public void addAll(List<Map<String, String>> errors) {
+        if (errors.isEmpty()) {
+            return;
+        }
+        if (writer != null) {
+            writer.write(errors);
+        } else {
+            parts.add(errors);
+        }
+        count.add(errors.size());
+    }
+
+    public long size() {
+        return count.sum();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    // All errors handed over so far, merged into one list; empty when they were streamed to a writer
+    public List<Map<String, String>> toList() {
+        List<Map<String, String>> merged = new ArrayList<>((int) Math.min(Integer.MAX_VALUE, size()));
+        for (List<Map<String, String>> part : parts) {
+            merged.addAll(part);
+        }
+        return merged;
+    }
+}
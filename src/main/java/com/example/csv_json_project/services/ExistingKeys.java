@@ -0,0 +1,60 @@
+package com.example.csv_json_project.services;
+
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+
+import com.example.csv_json_project.repositories.AccountRepository;
+import com.example.csv_json_project.repositories.CustomerRepository;
+
+// Builds the JobKeys of a new job. The stored customer ids and account numbers are streamed with one
+// query per table into Bloom filters, which keep their bits only, sized for them plus expected-keys
+// new ones. A claimed key the filter might have seen is looked up by id in its table.
+@Component
+public class ExistingKeys {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    @Value("${csv.duplicates.prefilter:true}")
+    private boolean enabled;
+
+    @Value("${csv.duplicates.expected-keys:1000000}")
+    private long expectedKeys;
+
+    @Value("${csv.duplicates.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    private static final Logger logger = LoggerFactory.getLogger(ExistingKeys.class);
+
+    // A JobKeys whose filters know every stored key; null if duplicate prefiltering is off
+    public JobKeys load() {
+        if (!enabled) {
+            return null;
+        }
+        long start = System.nanoTime();
+        DuplicateKeyFilter<Long> customerIds = filter("CUSTOMER", customerRepository::existsById);
+        DuplicateKeyFilter<String> accountNumbers = filter("ACCOUNT", accountRepository::existsById);
+        jdbcTemplate.query("SELECT CUSTOMER_ID FROM CUSTOMER", (RowCallbackHandler) rs -> customerIds.seed(rs.getLong(1)));
+        jdbcTemplate.query("SELECT ACCOUNT_NUMBER FROM ACCOUNT", (RowCallbackHandler) rs -> accountNumbers.seed(rs.getString(1)));
+        logger.info("Seeded the duplicate key filters in {} ms", (System.nanoTime() - start) / 1_000_000);
+        return new JobKeys(customerIds, accountNumbers);
+    }
+
+    private <K> DuplicateKeyFilter<K> filter(String table, Predicate<K> stored) {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Long.class);
+        return new DuplicateKeyFilter<>((count != null ? count : 0) + expectedKeys, falsePositiveRate, stored);
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.csv_json_project.services;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.example.csv_json_project.model.Account;
+import com.example.csv_json_project.model.Customer;
+import com.example.csv_json_project.springSecurity.EncryptedField;
+
+import jakarta.annotation.PostConstruct;
+
+// Loads validated rows with H2's own bulk path instead of JPA: each chunk is written to a staging
+// CSV file and inserted by one INSERT ... SELECT FROM CSVREAD, so H2 parses and inserts the rows
+// without an entity, statement or round-trip per row. Ids that exist already, or twice in the
+// chunk, are looked up with one query first and reported as duplicates. If the insert still
+// fails, e.g. because another task inserted the same id meanwhile, the chunk is handed to the
+// JPA batch engine, which isolates the failing rows. The column lists follow the entity mapping
+// of Customer and Account and have to change with it.
+@Component
+public class H2BulkLoader implements RowPersistenceEngine {
+
+    public static final String NAME = "h2-bulk";
+
+    private static final Table<Customer> CUSTOMER = new Table<>("CUSTOMER", "CUSTOMER_ID",
+            new String[]{"CUSTOMER_ID", "NAME", "SURNAME", "ADDRESS", "ZIP_CODE", "NATIONAL_ID", "BIRTH_DATE"},
+            "CAST(CUSTOMER_ID AS BIGINT), NAME, SURNAME, ADDRESS, ZIP_CODE, NATIONAL_ID, CAST(BIRTH_DATE AS DATE)",
+            Customer::getCustomer_Id,
+            // Names are stored as ciphertext, as EncryptedFieldConverter would store them
+            customer -> new Object[]{customer.getCustomer_Id(), ciphertextOf(customer.getEncryptedName()),
+                    ciphertextOf(customer.getEncryptedSurname()), customer.getAddress(), customer.getZipCode(),
+                    customer.getNationalId(), customer.getBirthDate()});
+
+    private static final Table<Account> ACCOUNT = new Table<>("ACCOUNT", "ACCOUNT_NUMBER",
+            new String[]{"ACCOUNT_NUMBER", "ACCOUNT_TYPE", "ACCOUNTLIMIT", "BALANCE", "OPEN_DATE", "CUSTOMER_ID",
+                    "ENCRYPTED_ACCOUNT_NUMBER", "ENCRYPTED_BALANCE"},
+            "ACCOUNT_NUMBER, CAST(ACCOUNT_TYPE AS INT), CAST(ACCOUNTLIMIT AS DOUBLE PRECISION), "
+                    + "CAST(BALANCE AS DOUBLE PRECISION), CAST(OPEN_DATE AS DATE), CAST(CUSTOMER_ID AS BIGINT), "
+                    + "ENCRYPTED_ACCOUNT_NUMBER, ENCRYPTED_BALANCE",
+            Account::getAccountNumber,
+            account -> new Object[]{account.getAccountNumber(), account.getAccountType(), account.getAccountlimit(),
+                    account.getBalance(), account.getOpenDate(),
+                    account.getCustomer() != null ? account.getCustomer().getCustomer_Id() : null,
+                    account.getEncryptedAccountNumber(), account.getEncryptedBalance()});
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private BatchPersister batchPersister;
+
+    @Value("${csv.persistence.commit-interval:5000}")
+    private int commitInterval;
+
+    @Value("${csv.persistence.staging-dir:}")
+    private String stagingDir;
+
+    private TransactionTemplate transactions;
+    private final LongAdder rows = new LongAdder();
+    private final LongAdder loads = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    private static final Logger logger = LoggerFactory.getLogger(H2BulkLoader.class);
+
+    @PostConstruct
+    public void start() {
+        transactions = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public int commitInterval() {
+        return Math.max(1, commitInterval);
+    }
+
+    @Override
+    public void persistCustomers(List<Customer> customers, RowFailureHandler onFailure) {
+        for (int from = 0; from < customers.size(); from += commitInterval()) {
+            int to = Math.min(customers.size(), from + commitInterval());
+            load(CUSTOMER, customers.subList(from, to), from, onFailure,
+                    (chunk, handler) -> batchPersister.persistCustomers(chunk, handler));
+        }
+    }
+
+    @Override
+    public void persistAccounts(List<Account> accounts, RowFailureHandler onFailure) {
+        for (int from = 0; from < accounts.size(); from += commitInterval()) {
+            int to = Math.min(accounts.size(), from + commitInterval());
+            load(ACCOUNT, accounts.subList(from, to), from, onFailure,
+                    (chunk, handler) -> batchPersister.persistAccounts(chunk, handler));
+        }
+    }
+
+    private <T> void load(Table<T> table, List<T> chunk, int offset, RowFailureHandler onFailure,
+                          Fallback<T> fallback) {
+        long start = System.nanoTime();
+        List<Object> keys = new ArrayList<>(chunk.size());
+        for (T row : chunk) {
+            keys.add(table.key.apply(row));
+        }
+        Set<Object> existing = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT " + table.keyColumn + " FROM " + table.name + " WHERE " + table.keyColumn + " = ANY(?)",
+                Object.class, (Object) keys.toArray()));
+
+        // Rows to load, with their position in the list the caller handed over
+        List<T> loadable = new ArrayList<>(chunk.size());
+        List<Integer> positions = new ArrayList<>(chunk.size());
+        Set<Object> seen = new HashSet<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            Object key = keys.get(i);
+            if (existing.contains(key) || !seen.add(key)) {
+                onFailure.failed(offset + i, new DataIntegrityViolationException(
+                        "Duplicate " + table.keyColumn + " " + key + " in " + table.name));
+            } else {
+                loadable.add(chunk.get(i));
+                positions.add(offset + i);
+            }
+        }
+        if (loadable.isEmpty()) {
+            return;
+        }
+
+        Path staging = null;
+        try {
+            staging = Files.createTempFile(stagingDirectory(), "bulk-" + table.name.toLowerCase() + "-", ".csv");
+            writeStagingFile(staging, table, loadable);
+            String sql = "INSERT INTO " + table.name + " (" + String.join(", ", table.columns) + ") SELECT "
+                    + table.select + " FROM CSVREAD('" + staging.toAbsolutePath().toString().replace("'", "''")
+                    + "', NULL, 'charset=UTF-8')";
+            transactions.executeWithoutResult(status -> jdbcTemplate.update(sql));
+            rows.add(loadable.size());
+            loads.increment();
+            nanos.add(System.nanoTime() - start);
+        } catch (IOException | DataAccessException e) {
+            // Rolled back, or the staging file could not be written; the JPA engine saves the rows
+            // that can be saved and reports the others
+            fallbacks.increment();
+            logger.warn("Bulk load of {} {} rows failed, saving them in JPA batches: {}", loadable.size(), table.name,
+                    e.getMessage());
+            fallback.persist(loadable, (index, failure) -> onFailure.failed(positions.get(index), failure));
+        } finally {
+            deleteStagingFile(staging);
+        }
+    }
+
+    // Staging CSV with a header naming the table columns. Every value is quoted and nulls are left
+    // empty and unquoted, which CSVREAD reads back as NULL.
+    private <T> void writeStagingFile(Path file, Table<T> table, List<T> rows) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writer.write(String.join(",", table.columns));
+            writer.newLine();
+            for (T row : rows) {
+                Object[] values = table.values.apply(row);
+                for (int i = 0; i < values.length; i++) {
+                    if (i > 0) {
+                        writer.write(',');
+                    }
+                    if (values[i] != null) {
+                        writer.write('"');
+                        writer.write(text(values[i]).replace("\"", "\"\""));
+                        writer.write('"');
+                    }
+                }
+                writer.newLine();
+            }
+        }
+    }
+
+    // Dates as yyyy-MM-dd in the default time zone, as JDBC binds them for a DATE column
+    private static String text(Object value) {
+        return value instanceof Date date ? new java.sql.Date(date.getTime()).toString() : value.toString();
+    }
+
+    private Path stagingDirectory() throws IOException {
+        Path directory = stagingDir == null || stagingDir.isBlank()
+                ? Path.of(System.getProperty("java.io.tmpdir"), "csv-bulk-staging")
+                : Path.of(stagingDir);
+        return Files.createDirectories(directory);
+    }
+
+    private void deleteStagingFile(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warn("Could not delete staging file {}", file, e);
+        }
+    }
+
+    private static String ciphertextOf(EncryptedField field) {
+        return field == null ? null : field.ciphertext();
+    }
+
+    public long rows() {
+        return rows.sum();
+    }
+
+    // Chunks saved through the JPA engine after the bulk load failed
+    public long fallbacks() {
+        return fallbacks.sum();
+    }
+
+    // e.g. "120000 rows in 24 loads, 150000 rows/s per writer, 0 chunks fell back to JPA"
+    @Override
+    public String stats() {
+        long rowCount = rows();
+        double seconds = nanos.sum() / 1e9;
+        return String.format("%d rows in %d loads, %.0f rows/s per writer, %d chunks fell back to JPA", rowCount,
+                loads.sum(), seconds > 0 ? rowCount / seconds : 0, fallbacks.sum());
+    }
+
+    @FunctionalInterface
+    private interface Fallback<T> {
+        void persist(List<T> rows, RowFailureHandler onFailure);
+    }
+
+    // Target table of an entity: its columns in staging file order and how to read them from the entity
+    private record Table<T>(String name, String keyColumn, String[] columns, String select, Function<T, Object> key,
+                            Function<T, Object[]> values) {
+    }
+}
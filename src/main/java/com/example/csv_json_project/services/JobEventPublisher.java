@@ -0,0 +1,103 @@
+package com.example.csv_json_project.services;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+// Pushes job status snapshots to Server-Sent Events subscribers at a fixed interval. The snapshots
+// are read from the counters the workers already maintain, so a subscriber costs the workers nothing,
+// and one timer thread serves every subscriber of every job. A "progress" event goes out each
+// interval while the job runs, a final "finished" event once it is done, then the stream completes.
+@Component
+public class JobEventPublisher {
+
+    public static final String EVENT_PROGRESS = "progress";
+    public static final String EVENT_FINISHED = "finished";
+
+    @Value("${csv.jobs.events-interval-ms:1000}")
+    private long intervalMillis;
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private ScheduledExecutorService scheduler;
+
+    private static final Logger logger = LoggerFactory.getLogger(JobEventPublisher.class);
+
+    @PostConstruct
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "csv-job-events");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::publish, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        subscriptions.forEach(subscription -> subscription.emitter.complete());
+        subscriptions.clear();
+    }
+
+    // Stream the job's progress until it finishes; the first snapshot is sent right away
+    public SseEmitter subscribe(CsvJob job) {
+        SseEmitter emitter = new SseEmitter(0L); // No timeout, the stream ends with the job
+        Subscription subscription = new Subscription(job, emitter);
+        emitter.onCompletion(() -> subscriptions.remove(subscription));
+        emitter.onTimeout(() -> subscriptions.remove(subscription));
+        emitter.onError(e -> subscriptions.remove(subscription));
+        subscriptions.add(subscription);
+        scheduler.execute(() -> send(subscription));
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscriptions.size();
+    }
+
+    // Runs on the scheduler thread only, so a subscriber never receives two events at once
+    private void publish() {
+        for (Subscription subscription : subscriptions) {
+            send(subscription);
+        }
+    }
+
+    private void send(Subscription subscription) {
+        if (!subscriptions.contains(subscription)) {
+            return;
+        }
+        CsvJob job = subscription.job;
+        boolean finished = job.isFinished(); // Checked before the snapshot, so the last one is complete
+        try {
+            subscription.emitter.send(SseEmitter.event()
+                    .name(finished ? EVENT_FINISHED : EVENT_PROGRESS)
+                    .id(job.id())
+                    .data(job.status()));
+        } catch (IOException | RuntimeException e) {
+            // The client went away; never let it escape, that would cancel the timer for everyone
+            logger.debug("Dropping progress subscriber of job {}: {}", job.id(), e.getMessage());
+            subscriptions.remove(subscription);
+            subscription.emitter.completeWithError(e);
+            return;
+        }
+        if (finished) {
+            subscriptions.remove(subscription);
+            subscription.emitter.complete();
+        }
+    }
+
+    private record Subscription(CsvJob job, SseEmitter emitter) {
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.csv_json_project.services;
+
+// The customer ids and account numbers taken while a job runs: those stored in the database and
+// those of the rows it is saving. A row claims its key before it is written; a claim that fails is
+// a duplicate, found without a failed insert. Keys of rows that could not be saved are released,
+// keys of saved rows are handed over to the database.
+public final class JobKeys {
+
+    private final DuplicateKeyFilter<Long> customerIds;
+    private final DuplicateKeyFilter<String> accountNumbers;
+
+    public JobKeys(DuplicateKeyFilter<Long> customerIds, DuplicateKeyFilter<String> accountNumbers) {
+        this.customerIds = customerIds;
+        this.accountNumbers = accountNumbers;
+    }
+
+    // False if the id is taken; a missing id is left to the database
+    public boolean claimCustomerId(Long id) {
+        return id == null || customerIds.add(id);
+    }
+
+    public void releaseCustomerId(Long id) {
+        if (id != null) {
+            customerIds.remove(id);
+        }
+    }
+
+    public void customerIdSaved(Long id) {
+        if (id != null) {
+            customerIds.saved(id);
+        }
+    }
+
+    public boolean claimAccountNumber(String accountNumber) {
+        return accountNumber == null || accountNumbers.add(accountNumber);
+    }
+
+    public void releaseAccountNumber(String accountNumber) {
+        if (accountNumber != null) {
+            accountNumbers.remove(accountNumber);
+        }
+    }
+
+    public void accountNumberSaved(String accountNumber) {
+        if (accountNumber != null) {
+            accountNumbers.saved(accountNumber);
+        }
+    }
+
+    public String stats() {
+        return "customer ids: " + customerIds.stats() + "; account numbers: " + accountNumbers.stats();
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.csv_json_project.services;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Rows of one job that made it through each processing stage so far. Every worker counts into
+// the same adders without contention; a status request sums them while the job keeps running.
+public class JobProgress {
+
+    public static final String READ = "read";
+    public static final String PARSED = "parsed";
+    public static final String DECRYPTED = "decrypted";
+    public static final String VALIDATED = "validated";
+    public static final String PERSISTED = "persisted";
+
+    private final LongAdder read = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder parsed = new LongAdder();
+    private final LongAdder decrypted = new LongAdder();
+    private final LongAdder validated = new LongAdder();
+    private final LongAdder persisted = new LongAdder();
+
+    // Data rows picked up by a worker, including the ones that fail later, and their size in the input
+    public void rowsRead(long rows, long bytes) {
+        read.add(rows);
+        bytesRead.add(bytes);
+    }
+
+    // Row split into its fields
+    public void rowParsed() {
+        parsed.increment();
+    }
+
+    // Row's encrypted fields decrypted and the row bound into its entity
+    public void rowDecrypted() {
+        decrypted.increment();
+    }
+
+    public void rowValidated() {
+        validated.increment();
+    }
+
+    public void rowPersisted() {
+        persisted.increment();
+    }
+
+    public long read() {
+        return read.sum();
+    }
+
+    public long bytesRead() {
+        return bytesRead.sum();
+    }
+
+    public long persisted() {
+        return persisted.sum();
+    }
+
+    // Rows per stage, in processing order
+    public Map<String, Long> snapshot() {
+        Map<String, Long> rows = new LinkedHashMap<>();
+        rows.put(READ, read.sum());
+        rows.put(PARSED, parsed.sum());
+        rows.put(DECRYPTED, decrypted.sum());
+        rows.put(VALIDATED, validated.sum());
+        rows.put(PERSISTED, persisted.sum());
+        return rows;
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.csv_json_project.services;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Splits a CSV file into byte ranges that start and end on record boundaries,
+// so each worker can memory-map and parse its own range independently. A newline
+// inside a quoted field is part of the record. A split point is resynchronized from
+// the bytes after it alone: the quote state there is unknown, so the scan follows
+// every possible one (see CsvRecordBoundary) and stops at the first newline that
+// ends a record in all of them.
+public class MappedCsvSplitter {
+
+    // A single mapping cannot exceed Integer.MAX_VALUE bytes
+    static final long MAX_RANGE_SIZE = Integer.MAX_VALUE;
+
+    private static final int PROBE_SIZE = 8192;
+    private static final int MAX_HEADER_SIZE = 64 * 1024;
+    // How far a split point is resynchronized before settling for a newline outside quotes
+    private static final int RESYNC_WINDOW = CsvRecordBoundary.MAX_RECORD_LENGTH;
+    private static final int[] ANY_STATE = {CsvRecordBoundary.FIELD_START, CsvRecordBoundary.UNQUOTED,
+            CsvRecordBoundary.QUOTED, CsvRecordBoundary.QUOTE_IN_QUOTED};
+
+    // Half-open byte range [start, end) of a file
+    public record ByteRange(long start, long end) {
+        public long length() {
+            return end - start;
+        }
+    }
+
+    // First line of a file, without its line terminator, and the offset where the next line starts
+    public record FirstLine(byte[] bytes, long nextLineStart) {
+    }
+
+    private MappedCsvSplitter() {
+    }
+
+    // Split the file into roughly equal ranges, each snapped to the byte after a record's newline
+    public static List<ByteRange> split(FileChannel channel, int parts) throws IOException {
+        return split(channel, parts, 0, MAX_RANGE_SIZE);
+    }
+
+    // Split the part of the file from startOffset on, e.g. everything after the header row
+    public static List<ByteRange> split(FileChannel channel, int parts, long startOffset) throws IOException {
+        return split(channel, parts, startOffset, MAX_RANGE_SIZE);
+    }
+
+    static List<ByteRange> split(FileChannel channel, int parts, long startOffset, long maxRangeSize) throws IOException {
+        long size = channel.size();
+        List<ByteRange> ranges = new ArrayList<>();
+        if (startOffset >= size) {
+            return ranges;
+        }
+
+        long dataSize = size - startOffset;
+        int effectiveParts = (int) Math.max(Math.max(parts, 1), (dataSize + maxRangeSize - 1) / maxRangeSize);
+        long targetSize = (dataSize + effectiveParts - 1) / effectiveParts;
+
+        long start = startOffset;
+        while (start < size) {
+            long end = start + targetSize >= size ? size : nextRecordStart(channel, start + targetSize, size, ANY_STATE);
+            if (end - start > maxRangeSize) {
+                // A single line longer than a mapping can hold is not a CSV we can split
+                throw new IOException("CSV line exceeds the maximum mappable size at offset " + start);
+            }
+            ranges.add(new ByteRange(start, end));
+            start = end;
+        }
+        return ranges;
+    }
+
+    // Read the first line, e.g. to compile the header; null when the file is empty or the line is implausibly long
+    public static FirstLine firstLine(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return null;
+        }
+        long nextLineStart = nextRecordStart(channel, 0, size, new int[] {CsvRecordBoundary.FIELD_START});
+        if (nextLineStart > MAX_HEADER_SIZE) {
+            return null;
+        }
+        ByteBuffer line = ByteBuffer.allocate((int) nextLineStart);
+        while (line.hasRemaining() && channel.read(line, line.position()) > 0) {
+            // Keep reading until the whole line is in the buffer
+        }
+        int length = line.position();
+        byte[] bytes = line.array();
+        while (length > 0 && (bytes[length - 1] == '\n' || bytes[length - 1] == '\r')) {
+            length--;
+        }
+        return new FirstLine(Arrays.copyOf(bytes, length), nextLineStart);
+    }
+
+    // Start of the first record after the middle of the range, or -1 if no record starts strictly inside it
+    public static long lineAlignedMiddle(FileChannel channel, ByteRange range) throws IOException {
+        long middle = nextRecordStart(channel, range.start() + range.length() / 2, range.end(), ANY_STATE);
+        return middle > range.start() && middle < range.end() ? middle : -1;
+    }
+
+    // Map a range read-only; callers parse it with LineCursor
+    public static MappedByteBuffer map(FileChannel channel, ByteRange range) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, range.start(), range.length());
+    }
+
+    // Find the offset just past the first record-ending newline at or after position, reading only
+    // the bytes from there on. initialStates holds the quote states position may be in; a state
+    // that closes a quoted field with content after it is dropped as implausible, and the first
+    // newline outside quotes in all that are left ends a record whichever one is true. Past
+    // RESYNC_WINDOW bytes the first newline outside quotes if position is outside them is taken,
+    // as a reader would have failed a quoted field running that long anyway. size ends a record,
+    // so a state still inside quotes there is dropped as well.
+    private static long nextRecordStart(FileChannel channel, long position, long size, int[] initialStates)
+            throws IOException {
+        int[] states = initialStates.clone();
+        // The first one or two states are the ones outside quotes
+        int outside = Math.min(2, states.length);
+        long windowEnd = position + RESYNC_WINDOW;
+        long fallback = -1;
+        // Per state, the first newline it ended a record at
+        long[] firstEnds = new long[states.length];
+        Arrays.fill(firstEnds, -1);
+        ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+        byte[] bytes = probe.array();
+        long offset = position;
+        while (offset < size) {
+            if (offset >= windowEnd && fallback >= 0) {
+                return fallback;
+            }
+            probe.clear();
+            int read = channel.read(probe, offset);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                byte b = bytes[i];
+                if (b == '\n') {
+                    boolean quoted = false;
+                    boolean live = false;
+                    for (int state : states) {
+                        quoted |= state == CsvRecordBoundary.QUOTED;
+                        live |= state != CsvRecordBoundary.MALFORMED;
+                    }
+                    if (live && !quoted) {
+                        return offset + i + 1;
+                    }
+                    for (int h = 0; h < states.length; h++) {
+                        if (firstEnds[h] < 0 && states[h] != CsvRecordBoundary.QUOTED
+                                && states[h] != CsvRecordBoundary.MALFORMED) {
+                            firstEnds[h] = offset + i + 1;
+                        }
+                    }
+                    if (fallback < 0 && states[0] != CsvRecordBoundary.QUOTED
+                            && states[outside - 1] != CsvRecordBoundary.QUOTED) {
+                        fallback = offset + i + 1;
+                    }
+                }
+                boolean live = false;
+                for (int h = 0; h < states.length; h++) {
+                    if (states[h] != CsvRecordBoundary.MALFORMED) {
+                        states[h] = CsvRecordBoundary.nextJoined(states[h], b);
+                        live |= states[h] != CsvRecordBoundary.MALFORMED;
+                    }
+                }
+                if (!live) {
+                    // No state explains the bytes so far; start over from the next one
+                    System.arraycopy(initialStates, 0, states, 0, states.length);
+                    Arrays.fill(firstEnds, -1);
+                }
+            }
+            offset += read;
+        }
+        if (offset >= size) {
+            for (int h = 0; h < states.length; h++) {
+                if (states[h] != CsvRecordBoundary.QUOTED && states[h] != CsvRecordBoundary.MALFORMED) {
+                    return firstEnds[h] >= 0 ? firstEnds[h] : size;
+                }
+            }
+        }
+        return fallback >= 0 ? fallback : size;
+    }
+
+    // Iterates the records of a mapped range. Bytes are bulk-copied from the mapping into a
+    // reusable block and newlines are located with a DelimiterScanner; a newline inside a quoted
+    // field does not end the record. A quote still open after MAX_RECORD_LENGTH bytes or at the
+    // end of the range, or closed with content after it, leaves its first line as the record, to
+    // fail as malformed, and the bytes after that line are read again. Each record is exposed as the region [lineStart, lineEnd)
+    // of data(), valid until the next call to next().
+    public static class LineCursor {
+
+        private static final int BLOCK_SIZE = 1 << 20;
+
+        private final ByteBuffer buffer;
+        private final DelimiterScanner scanner;
+        private byte[] block;
+        private int filled;
+        private int position;
+        // Where the newline search resumes, and the CsvRecordBoundary state after [position, scanFrom)
+        private int scanFrom;
+        private int state = CsvRecordBoundary.FIELD_START;
+        // First newline of a record inside a quoted field, -1 if there is none yet
+        private int firstNewline = -1;
+        private int lineStart;
+        private int lineEnd;
+
+        public LineCursor(ByteBuffer buffer, DelimiterScanner scanner) {
+            this.buffer = buffer.duplicate();
+            this.scanner = scanner;
+            this.block = new byte[Math.max(1, Math.min(BLOCK_SIZE, buffer.remaining()))];
+        }
+
+        // Advance to the next line; returns false once the range is exhausted
+        public boolean next() {
+            while (true) {
+                int newline = scanner.nextNewline(block, scanFrom, filled);
+                if (newline < filled) {
+                    state = firstNewline < 0 ? CsvRecordBoundary.scan(state, block, scanFrom, newline)
+                            : CsvRecordBoundary.scanJoined(state, block, scanFrom, newline);
+                    scanFrom = newline + 1;
+                    if (state == CsvRecordBoundary.MALFORMED) {
+                        return unterminated();
+                    }
+                    if (state == CsvRecordBoundary.QUOTED) {
+                        // Newline inside a quoted field
+                        if (firstNewline < 0) {
+                            firstNewline = newline;
+                        }
+                        if (scanFrom - position > CsvRecordBoundary.MAX_RECORD_LENGTH) {
+                            return unterminated();
+                        }
+                        continue;
+                    }
+                    setLine(position, newline);
+                    startRecord(scanFrom);
+                    return true;
+                }
+                if (!buffer.hasRemaining()) {
+                    if (position < filled) {
+                        state = firstNewline < 0 ? CsvRecordBoundary.scan(state, block, scanFrom, filled)
+                                : CsvRecordBoundary.scanJoined(state, block, scanFrom, filled);
+                        if (firstNewline >= 0
+                                && (state == CsvRecordBoundary.QUOTED || state == CsvRecordBoundary.MALFORMED)) {
+                            return unterminated();
+                        }
+                        setLine(position, filled); // Last line without a trailing newline
+                        startRecord(filled);
+                        return true;
+                    }
+                    return false;
+                }
+                refill();
+            }
+        }
+
+        // The quote of the current record is never closed: its first line alone is the record
+        private boolean unterminated() {
+            setLine(position, firstNewline);
+            startRecord(firstNewline + 1);
+            return true;
+        }
+
+        private void startRecord(int start) {
+            position = start;
+            scanFrom = start;
+            state = CsvRecordBoundary.FIELD_START;
+            firstNewline = -1;
+        }
+
+        public byte[] data() {
+            return block;
+        }
+
+        public int lineStart() {
+            return lineStart;
+        }
+
+        public int lineEnd() {
+            return lineEnd;
+        }
+
+        private void setLine(int start, int end) {
+            if (end > start && block[end - 1] == '\r') {
+                end--; // Windows line endings
+            }
+            lineStart = start;
+            lineEnd = end;
+        }
+
+        // Keep the unfinished line at the front of the block and append the next bytes of the range
+        private void refill() {
+            int pending = filled - position;
+            if (pending == block.length) {
+                block = Arrays.copyOf(block, block.length * 2); // A single line longer than the block
+            } else {
+                System.arraycopy(block, position, block, 0, pending);
+            }
+            scanFrom -= position;
+            if (firstNewline >= 0) {
+                firstNewline -= position;
+            }
+            position = 0;
+            filled = pending;
+            int count = Math.min(block.length - filled, buffer.remaining());
+            buffer.get(block, filled, count);
+            filled += count;
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.example.csv_json_project.services;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Parses one newline-aligned byte range of a memory-mapped CSV file. Lines are
+// tokenized straight from the mapped bytes and fed row by row through the usual
+// CsvProcessorTask logic, so no String is created per line.
+public class MappedRangeTask implements Runnable {
+
+    private final FileChannel channel;
+    private final MappedCsvSplitter.ByteRange range;
+    private final boolean accounts;
+    private final DelimiterScanner scanner;
+    private final CsvProcessorTask processor;
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedRangeTask.class);
+
+    public MappedRangeTask(FileChannel channel, MappedCsvSplitter.ByteRange range, boolean accounts, DelimiterScanner scanner,
+                           CsvProcessorTask.Context context) {
+        this.channel = channel;
+        this.range = range;
+        this.accounts = accounts;
+        this.scanner = scanner;
+        this.processor = new CsvProcessorTask(Collections.emptyList(), Collections.emptyList(), context);
+    }
+
+    @Override
+    public void run() {
+        MappedCsvSplitter.LineCursor cursor;
+        try {
+            cursor = new MappedCsvSplitter.LineCursor(MappedCsvSplitter.map(channel, range), scanner);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error mapping CSV range " + range, e);
+        }
+
+        List<Map<String, String>> errors = new ArrayList<>();
+        CsvTokenizer fields = CsvTokenizer.perThread();
+        String fileName = accounts ? "Account" : "Customer";
+        JobProgress progress = processor.progress();
+
+        // Errors collected before a failure part-way through the range are published all the same
+        try {
+            while (cursor.next()) {
+                byte[] data = cursor.data();
+                int start = cursor.lineStart();
+                int end = cursor.lineEnd();
+                if (isBlank(data, start, end)) {
+                    continue; // Skip empty lines
+                }
+                progress.rowsRead(1, end - start + 1);
+
+                try {
+                    fields.tokenize(data, start, end, scanner);
+                } catch (IllegalArgumentException e) {
+                    String line = new String(data, start, end - start, StandardCharsets.UTF_8);
+                    errors.add(processor.createErrorMap(fileName, "500", "Processing Error", "Malformed " + fileName + " line", new String[]{line}));
+                    logger.error("Malformed {} line: {}", fileName, line, e);
+                    continue;
+                }
+                progress.rowParsed();
+
+                if (accounts) {
+                    processor.processAccountRow(fields, errors);
+                } else {
+                    processor.processCustomerRow(fields, errors);
+                }
+            }
+
+            processor.flushPending(errors);
+        } finally {
+            processor.publishErrors(errors);
+        }
+    }
+
+    private static boolean isBlank(byte[] data, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if ((data[i] & 0xff) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+}
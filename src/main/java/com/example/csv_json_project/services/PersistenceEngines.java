@@ -0,0 +1,58 @@
+package com.example.csv_json_project.services;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+// The row persistence engines by name. A job uses the engine it was submitted with, or
+// csv.persistence.engine; "row" means no engine, every row is saved through its repository.
+@Component
+public class PersistenceEngines {
+
+    public static final String ROW = "row";
+
+    @Autowired
+    private List<RowPersistenceEngine> engines;
+
+    @Value("${csv.persistence.engine:" + BatchPersister.NAME + "}")
+    private String defaultEngine;
+
+    private final Map<String, RowPersistenceEngine> byName = new LinkedHashMap<>();
+
+    @PostConstruct
+    public void start() {
+        for (RowPersistenceEngine engine : engines) {
+            byName.put(engine.name(), engine);
+        }
+        check(defaultEngine);
+    }
+
+    // Throws IllegalArgumentException unless name is null (the default), "row" or a known engine
+    public void check(String name) {
+        resolve(name);
+    }
+
+    // The engine called name, or the default one for null; null for "row"
+    public RowPersistenceEngine resolve(String name) {
+        String engineName = name == null || name.isBlank() ? defaultEngine : name.trim();
+        if (ROW.equalsIgnoreCase(engineName)) {
+            return null;
+        }
+        RowPersistenceEngine engine = byName.get(engineName);
+        if (engine == null) {
+            throw new IllegalArgumentException("Unknown persistence engine: " + engineName
+                    + " (expected " + ROW + ", " + String.join(", ", byName.keySet()) + ")");
+        }
+        return engine;
+    }
+
+    public RowPersistenceEngine forJob(CsvJob job) {
+        return resolve(job.persistenceEngine());
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.csv_json_project.services;
+
+import java.util.List;
+
+import com.example.csv_json_project.model.Account;
+import com.example.csv_json_project.model.Customer;
+
+// Saves the validated rows of a task. Implementations are beans picked by name per job through
+// PersistenceEngines; rows are new, an id that already exists is a failure of that row.
+public interface RowPersistenceEngine {
+
+    // Told about each row that was not saved; index is its position in the list handed over
+    @FunctionalInterface
+    interface RowFailureHandler {
+        void failed(int index, RuntimeException e);
+    }
+
+    // Name used by csv.persistence.engine and the upload's engine parameter
+    String name();
+
+    // Rows a task holds back before handing them over
+    int commitInterval();
+
+    // Save the customers; rows that fail are reported, with duplicates as DataIntegrityViolationException,
+    // and every other row is saved
+    void persistCustomers(List<Customer> customers, RowFailureHandler onFailure);
+
+    void persistAccounts(List<Account> accounts, RowFailureHandler onFailure);
+
+    // Throughput summary for the log
+    String stats();
+}
@@ -0,0 +1,36 @@
+package com.example.csv_json_project.services;
+
+// Byte-at-a-time fallback used when the Vector API module is not enabled
+public final class ScalarDelimiterScanner implements DelimiterScanner {
+
+    public static final ScalarDelimiterScanner INSTANCE = new ScalarDelimiterScanner();
+
+    private ScalarDelimiterScanner() {
+    }
+
+    @Override
+    public int nextDelimiter(byte[] data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            byte b = data[i];
+            if (b == COMMA || b == QUOTE) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    @Override
+    public int nextNewline(byte[] data, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (data[i] == NEWLINE) {
+                return i;
+            }
+        }
+        return to;
+    }
+
+    @Override
+    public String name() {
+        return "scalar";
+    }
+}
@@ -0,0 +1,351 @@
+package com.example.csv_json_project.services;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.example.csv_json_project.model.Account;
+import com.example.csv_json_project.model.Customer;
+
+// Runs one CSV file through separate stages, each with a queue in front and its own worker limit:
+//   parse    - the calling thread reads batches of lines
+//   decrypt  - tokenize, decrypt and bind each row into its entity (CPU bound)
+//   validate - business rules and key claims, invalid rows are recorded as 400 errors, claimed keys as 409
+//   persist  - save, duplicates are recorded as 409 errors (I/O bound)
+// Stage work runs on the shared CsvWorkerPool, so the pool's mode and worker limit apply to it like
+// to any other job. A worker drains its stage's queue and returns to the pool once it is empty; it
+// never waits for input, so pipelines of concurrent jobs cannot starve each other of pool threads.
+// Only the parse thread blocks: it stops reading while too many batches are in the pipeline, so a
+// slow database throttles reading instead of piling rows up in memory. Rows move between stages in
+// batches to keep queue traffic low. Tokenizing stays in the decrypt stage because tokenizer fields
+// are only valid on the thread that produced them.
+public class StagedCsvPipeline {
+
+    private static final int DEPTH_LOG_INTERVAL = 100;
+
+    private static final Logger logger = LoggerFactory.getLogger(StagedCsvPipeline.class);
+
+    private final CsvProcessorTask rows;
+    private final CsvWorkerPool workerPool;
+    private final boolean accounts;
+    private final String fileName;
+    private final Stage<List<String>> decrypt;
+    private final Stage<List<Row>> validate;
+    private final Stage<List<Row>> persist;
+
+    // Batches queued or being worked on in any stage. Reading pauses while queueCapacity batches wait
+    // for the decrypt stage or maxPending are in the pipeline, whichever comes first.
+    private final Object pendingLock = new Object();
+    private final int queueCapacity;
+    private final int maxPending;
+    private int pending;
+    // First batch failure of any stage; reading stops and run rethrows it once the stages are drained
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+
+    // rows supplies the binding, validation and persistence steps, and collects the errors
+    public StagedCsvPipeline(CsvProcessorTask rows, CsvWorkerPool workerPool, boolean accounts, int decryptWorkers,
+                             int validateWorkers, int persistWorkers, int queueCapacity) {
+        this.rows = rows;
+        this.workerPool = workerPool;
+        this.accounts = accounts;
+        this.fileName = accounts ? "Account" : "Customer";
+        this.persist = new Stage<>("persist", persistWorkers, this::persistRows);
+        this.validate = new Stage<>("validate", validateWorkers, this::validateRows);
+        this.decrypt = new Stage<>("decrypt", decryptWorkers, this::decryptRows);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.maxPending = 3 * this.queueCapacity + decrypt.workers + validate.workers + persist.workers;
+    }
+
+    // Feed firstBatch and then the rest of the reader through the stages; returns once every row is persisted
+    public void run(List<String> firstBatch, CsvBatchReader reader) throws IOException {
+        persist.start();
+        validate.start();
+        decrypt.start();
+
+        try {
+            int batches = 0;
+            for (List<String> batch = firstBatch; batch != null && failure.get() == null; batch = reader.nextBatch()) {
+                if (!batch.isEmpty()) {
+                    awaitRoom();
+                    decrypt.put(batch);
+                }
+                if (++batches % DEPTH_LOG_INTERVAL == 0) {
+                    logger.debug("{} pipeline queue depths: {}", fileName, queueDepths());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while feeding the " + fileName + " pipeline");
+        } finally {
+            // Drain whatever was read so far, also when reading failed
+            awaitDrained();
+            decrypt.awaitWorkers();
+            validate.awaitWorkers();
+            persist.awaitWorkers();
+            logger.info("{} pipeline finished, peak queue depths: {}", fileName, peakQueueDepths());
+        }
+        RuntimeException stageFailure = failure.get();
+        if (stageFailure != null) {
+            throw stageFailure;
+        }
+    }
+
+    // Batches currently waiting in front of each stage
+    public Map<String, Integer> queueDepths() {
+        Map<String, Integer> depths = new LinkedHashMap<>();
+        for (Stage<?> stage : List.of(decrypt, validate, persist)) {
+            depths.put(stage.name, stage.depth.get());
+        }
+        return depths;
+    }
+
+    // Highest number of batches that waited in front of each stage so far
+    public Map<String, Integer> peakQueueDepths() {
+        Map<String, Integer> depths = new LinkedHashMap<>();
+        for (Stage<?> stage : List.of(decrypt, validate, persist)) {
+            depths.put(stage.name, stage.peakDepth.get());
+        }
+        return depths;
+    }
+
+    private void decryptRows(List<String> lines, List<Map<String, String>> errors) {
+        CsvTokenizer fields = CsvTokenizer.perThread();
+        List<Row> bound = new ArrayList<>(lines.size());
+        rows.progress().rowsRead(lines.size(), CsvProcessorTask.inputLength(lines));
+        for (String line : lines) {
+            try {
+                fields.tokenize(line);
+            } catch (IllegalArgumentException e) {
+                errors.add(rows.createErrorMap(fileName, "500", "Processing Error", "Malformed " + fileName + " line", new String[]{line}));
+                logger.error("Malformed {} line: {}", fileName, line, e);
+                continue;
+            }
+            rows.progress().rowParsed();
+            boolean possible = accounts ? rows.prefilterAccount(fields, errors) : rows.prefilterCustomer(fields, errors);
+            if (!possible) {
+                continue;
+            }
+            // Decrypts the row's encrypted fields and counts it as decrypted
+            Object entity = accounts ? rows.bindAccount(fields, errors) : rows.bindCustomer(fields, errors);
+            if (entity != null) {
+                bound.add(new Row(line, entity));
+            }
+        }
+        if (!bound.isEmpty()) {
+            validate.put(bound);
+        }
+    }
+
+    private void validateRows(List<Row> batch, List<Map<String, String>> errors) {
+        List<Row> valid = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            boolean isValid = accounts
+                    ? rows.checkAccount((Account) row.entity, row::fields, errors)
+                            && rows.claimAccount((Account) row.entity, row::fields, errors)
+                    : rows.checkCustomer((Customer) row.entity, row::fields, errors)
+                            && rows.claimCustomer((Customer) row.entity, row::fields, errors);
+            if (isValid) {
+                valid.add(row);
+            }
+        }
+        if (!valid.isEmpty()) {
+            persist.put(valid);
+        }
+    }
+
+    // The whole batch goes to the database together, in JDBC batches if batch persistence is on
+    private void persistRows(List<Row> batch, List<Map<String, String>> errors) {
+        List<Supplier<String[]>> fields = new ArrayList<>(batch.size());
+        for (Row row : batch) {
+            fields.add(row::fields);
+        }
+        if (accounts) {
+            List<Account> entities = new ArrayList<>(batch.size());
+            for (Row row : batch) {
+                entities.add((Account) row.entity);
+            }
+            rows.persistAccounts(entities, fields, errors);
+        } else {
+            List<Customer> entities = new ArrayList<>(batch.size());
+            for (Row row : batch) {
+                entities.add((Customer) row.entity);
+            }
+            rows.persistCustomers(entities, fields, errors);
+        }
+    }
+
+    private void awaitRoom() throws InterruptedException {
+        synchronized (pendingLock) {
+            while (decrypt.depth.get() >= queueCapacity || pending >= maxPending) {
+                pendingLock.wait();
+            }
+        }
+    }
+
+    // Uninterruptible, the stages must always drain or their workers would keep running after the job
+    private void awaitDrained() {
+        boolean interrupted = false;
+        synchronized (pendingLock) {
+            while (pending > 0) {
+                try {
+                    pendingLock.wait();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void batchAdded() {
+        synchronized (pendingLock) {
+            pending++;
+        }
+    }
+
+    private void batchDone() {
+        synchronized (pendingLock) {
+            pending--;
+            pendingLock.notifyAll();
+        }
+    }
+
+    // A bound entity with its source line, which is only tokenized again for an error record
+    private static final class Row {
+        private final String line;
+        private final Object entity;
+
+        private Row(String line, Object entity) {
+            this.line = line;
+            this.entity = entity;
+        }
+
+        private String[] fields() {
+            CsvTokenizer fields = CsvTokenizer.perThread();
+            fields.tokenize(line);
+            return fields.toArray();
+        }
+    }
+
+    @FunctionalInterface
+    private interface StageStep<I> {
+        void process(I item, List<Map<String, String>> errors);
+    }
+
+    // A queue of batches and up to workers pool tasks draining it. A batch counts as pending from put
+    // until its step has run, and a step puts its output into the next stage before it returns, so
+    // pending only drops to zero once every batch has left the last stage.
+    private final class Stage<I> {
+
+        private final String name;
+        private final int workers;
+        private final StageStep<I> step;
+        private final Queue<I> queue = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger depth = new AtomicInteger();
+        private final AtomicInteger peakDepth = new AtomicInteger();
+        private final AtomicInteger draining = new AtomicInteger();
+        private CsvWorkerPool.TaskGroup tasks;
+
+        private Stage(String name, int workers, StageStep<I> step) {
+            this.name = name;
+            this.workers = Math.max(1, workers);
+            this.step = step;
+        }
+
+        private void start() {
+            // Never more than workers drain tasks at once, so submitting to the group does not block
+            tasks = workerPool.newTaskGroup(workers);
+        }
+
+        private void put(I item) {
+            batchAdded();
+            queue.add(item);
+            peakDepth.accumulateAndGet(depth.incrementAndGet(), Math::max);
+            try {
+                startWorker();
+            } catch (RuntimeException e) {
+                // The pool refused the task, e.g. while shutting down; take the batch back out
+                if (queue.remove(item)) {
+                    depth.decrementAndGet();
+                    batchDone();
+                }
+                throw e;
+            }
+        }
+
+        // Start another drain task unless workers of them are running already
+        private void startWorker() {
+            if (claimWorker()) {
+                try {
+                    tasks.execute(this::drain);
+                } catch (RuntimeException e) {
+                    draining.decrementAndGet();
+                    throw e;
+                }
+            }
+        }
+
+        private void drain() {
+            List<Map<String, String>> errors = new ArrayList<>();
+            boolean claimed = true;
+            try {
+                while (claimed) {
+                    for (I item = queue.poll(); item != null; item = queue.poll()) {
+                        depth.decrementAndGet();
+                        try {
+                            step.process(item, errors);
+                        } catch (RuntimeException e) {
+                            // Keep draining so the feeder is released, the pipeline fails once it is empty
+                            logger.error("{} stage failed on a {} batch", name, fileName, e);
+                            if (!failure.compareAndSet(null, e)) {
+                                failure.get().addSuppressed(e);
+                            }
+                        } finally {
+                            batchDone();
+                        }
+                    }
+                    draining.decrementAndGet();
+                    // A batch put after the last poll may have found every worker still busy
+                    claimed = !queue.isEmpty() && claimWorker();
+                }
+            } finally {
+                if (claimed) {
+                    // Left through an Error; hand what is queued to a fresh drain task
+                    draining.decrementAndGet();
+                    if (!queue.isEmpty()) {
+                        startWorker();
+                    }
+                }
+                rows.publishErrors(errors);
+            }
+        }
+
+        private boolean claimWorker() {
+            for (int current = draining.get(); current < workers; current = draining.get()) {
+                if (draining.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void awaitWorkers() {
+            if (tasks != null) {
+                tasks.awaitCompletion();
+            }
+        }
+    }
+}
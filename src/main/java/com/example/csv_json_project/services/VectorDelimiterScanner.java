@@ -0,0 +1,45 @@
+package com.example.csv_json_project.services;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorSpecies;
+
+// Compares a whole vector of input bytes (32 bytes with AVX2, 64 with AVX-512)
+// against the structural characters at once and jumps to the first match.
+// Only instantiate through DelimiterScanner.create, which checks the module is present.
+final class VectorDelimiterScanner implements DelimiterScanner {
+
+    private static final VectorSpecies<Byte> SPECIES = ByteVector.SPECIES_PREFERRED;
+
+    @Override
+    public int nextDelimiter(byte[] data, int from, int to) {
+        int i = from;
+        int bound = from + SPECIES.loopBound(to - from);
+        for (; i < bound; i += SPECIES.length()) {
+            ByteVector chunk = ByteVector.fromArray(SPECIES, data, i);
+            VectorMask<Byte> matches = chunk.eq(COMMA).or(chunk.eq(QUOTE));
+            if (matches.anyTrue()) {
+                return i + matches.firstTrue();
+            }
+        }
+        return ScalarDelimiterScanner.INSTANCE.nextDelimiter(data, i, to);
+    }
+
+    @Override
+    public int nextNewline(byte[] data, int from, int to) {
+        int i = from;
+        int bound = from + SPECIES.loopBound(to - from);
+        for (; i < bound; i += SPECIES.length()) {
+            VectorMask<Byte> matches = ByteVector.fromArray(SPECIES, data, i).eq(NEWLINE);
+            if (matches.anyTrue()) {
+                return i + matches.firstTrue();
+            }
+        }
+        return ScalarDelimiterScanner.INSTANCE.nextNewline(data, i, to);
+    }
+
+    @Override
+    public String name() {
+        return "vector-" + SPECIES.vectorByteSize() * 8 + "bit";
+    }
+}
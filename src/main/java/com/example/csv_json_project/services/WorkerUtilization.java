@@ -0,0 +1,69 @@
+package com.example.csv_json_project.services;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+// Busy time and task count per worker thread over one job phase, to spot stragglers
+public class WorkerUtilization {
+
+    private final long startNanos = System.nanoTime();
+    private final Map<String, Load> loads = new ConcurrentHashMap<>();
+
+    // Record work done by the calling thread
+    public void record(long busyNanos) {
+        Load load = loads.computeIfAbsent(Thread.currentThread().getName(), name -> new Load());
+        load.busyNanos.add(busyNanos);
+        load.tasks.increment();
+    }
+
+    // Share of the phase's wall-clock time each worker spent busy, by thread name
+    public Map<String, Double> busyRatios() {
+        long elapsed = Math.max(1, System.nanoTime() - startNanos);
+        Map<String, Double> ratios = new TreeMap<>();
+        loads.forEach((name, load) -> ratios.put(name, Math.min(1.0, load.busyNanos.sum() / (double) elapsed)));
+        return ratios;
+    }
+
+    public long taskCount(String workerName) {
+        Load load = loads.get(workerName);
+        return load != null ? load.tasks.sum() : 0;
+    }
+
+    // One line summary: worker count and min/avg/max busy share
+    public String summary() {
+        Map<String, Double> ratios = busyRatios();
+        if (ratios.isEmpty()) {
+            return "no tasks ran";
+        }
+        double min = 1.0;
+        double max = 0.0;
+        double sum = 0.0;
+        for (double ratio : ratios.values()) {
+            min = Math.min(min, ratio);
+            max = Math.max(max, ratio);
+            sum += ratio;
+        }
+        return String.format("%d workers busy min %.0f%% / avg %.0f%% / max %.0f%%",
+                ratios.size(), min * 100, sum / ratios.size() * 100, max * 100);
+    }
+
+    // Per worker breakdown, e.g. "csv-worker-1=97% (12 tasks)"
+    public String details() {
+        StringBuilder details = new StringBuilder();
+        busyRatios().forEach((name, ratio) -> {
+            if (details.length() > 0) {
+                details.append(", ");
+            }
+            details.append(name).append('=').append(Math.round(ratio * 100)).append("% (")
+                    .append(taskCount(name)).append(" tasks)");
+        });
+        return details.toString();
+    }
+
+    private static class Load {
+        private final LongAdder busyNanos = new LongAdder();
+        private final LongAdder tasks = new LongAdder();
+    }
+}
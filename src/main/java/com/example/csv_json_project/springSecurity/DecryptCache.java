@@ -0,0 +1,184 @@
+package com.example.csv_json_project.springSecurity;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+// Plaintexts of recently decrypted ciphertexts. With the fixed key and IV the same plaintext always
+// encrypts to the same ciphertext, so repeated values of low-cardinality columns (e.g. balances)
+// can skip AES. Bounded to max-entries, split into segments that each evict their least recently
+// used entry and have their own lock, so workers rarely contend. Lookups take the ciphertext as a
+// CharSequence, a tokenizer slice needs no String to probe the cache. Only the configured columns
+// use it; max-entries=0 turns it off.
+@Component
+public class DecryptCache {
+
+    private static final int SEGMENTS = 16;
+
+    @Value("${csv.decrypt-cache.max-entries:0}")
+    private int maxEntries;
+
+    @Value("${csv.decrypt-cache.columns:}")
+    private String columns;
+
+    private Set<String> enabledColumns = Collections.emptySet();
+    private Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    // One probe key per thread, pointed at the ciphertext being looked up
+    private static final ThreadLocal<Key> PROBE = ThreadLocal.withInitial(Key::new);
+    private static final Logger logger = LoggerFactory.getLogger(DecryptCache.class);
+
+    @PostConstruct
+    public void start() {
+        Set<String> names = new HashSet<>();
+        if (columns != null) {
+            for (String column : columns.split(",")) {
+                if (!column.isBlank()) {
+                    names.add(column.trim().toUpperCase());
+                }
+            }
+        }
+        enabledColumns = names;
+        if (maxEntries > 0) {
+            int perSegment = Math.max(1, (maxEntries + SEGMENTS - 1) / SEGMENTS);
+            segments = new Segment[SEGMENTS];
+            for (int i = 0; i < SEGMENTS; i++) {
+                segments[i] = new Segment(perSegment);
+            }
+            logger.info("Decrypt cache enabled for {} with up to {} entries", enabledColumns, maxEntries);
+        }
+    }
+
+    // Whether decryptions of the named column go through the cache
+    public boolean isEnabledFor(String column) {
+        return segments != null && enabledColumns.contains(column.toUpperCase());
+    }
+
+    // The cached plaintext of the ciphertext, or null on a miss
+    public String get(CharSequence ciphertext) {
+        Key probe = PROBE.get().set(ciphertext);
+        try {
+            String plaintext = segmentFor(probe.hash).get(probe);
+            if (plaintext != null) {
+                hits.increment();
+            } else {
+                misses.increment();
+            }
+            return plaintext;
+        } finally {
+            probe.set(null);
+        }
+    }
+
+    public void put(CharSequence ciphertext, String plaintext) {
+        Key key = new Key().set(ciphertext.toString());
+        segmentFor(key.hash).put(key, plaintext);
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        if (segments != null) {
+            for (Segment segment : segments) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    // e.g. "1200 hits / 300 misses (80% hit rate), 300 entries"
+    public String stats() {
+        long hitCount = hits();
+        long missCount = misses();
+        long lookups = Math.max(1, hitCount + missCount);
+        return String.format("%d hits / %d misses (%.0f%% hit rate), %d entries",
+                hitCount, missCount, hitCount * 100.0 / lookups, size());
+    }
+
+    private Segment segmentFor(int hash) {
+        return segments[(hash ^ (hash >>> 16)) & (SEGMENTS - 1)];
+    }
+
+    // LRU map of one segment; LinkedHashMap in access order reorders on get, so reads lock too
+    private static final class Segment {
+
+        private final LinkedHashMap<Key, String> entries;
+
+        private Segment(int capacity) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Key, String> eldest) {
+                    return size() > capacity;
+                }
+            };
+        }
+
+        private synchronized String get(Key key) {
+            return entries.get(key);
+        }
+
+        private synchronized void put(Key key, String plaintext) {
+            entries.put(key, plaintext);
+        }
+
+        private synchronized int size() {
+            return entries.size();
+        }
+    }
+
+    // Ciphertext compared by content, so a reusable probe over a CharSequence finds entries keyed by Strings
+    private static final class Key {
+
+        private CharSequence text;
+        private int hash;
+
+        private Key set(CharSequence text) {
+            this.text = text;
+            int h = 0;
+            if (text != null) {
+                for (int i = 0; i < text.length(); i++) {
+                    h = 31 * h + text.charAt(i);
+                }
+            }
+            this.hash = h;
+            return this;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (!(other instanceof Key key) || key.hash != hash || key.text.length() != text.length()) {
+                return false;
+            }
+            for (int i = 0; i < text.length(); i++) {
+                if (text.charAt(i) != key.text.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
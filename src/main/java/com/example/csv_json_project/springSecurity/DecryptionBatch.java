@@ -0,0 +1,123 @@
+package com.example.csv_json_project.springSecurity;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+// Ciphertext fields of a row or chunk decrypted together by EncryptionUtil.decryptBatch.
+// Base64 is decoded into a scratch buffer and the plaintext of every field lands in one shared
+// output buffer, both reused from batch to batch, so decrypting a field allocates nothing; only
+// toString creates the String the entity keeps. A field queued with a DecryptCache is resolved
+// from the cache when its ciphertext was seen before, and skips AES and the String copy.
+// Not thread-safe, keep one batch per thread.
+public final class DecryptionBatch {
+
+    private CharSequence[] inputs = new CharSequence[8];
+    private int[] starts = new int[8];
+    private int[] lengths = new int[8]; // -1 marks a field that did not decrypt
+    private DecryptCache[] caches = new DecryptCache[8];
+    private String[] resolved = new String[8]; // Plaintext already held as a String, e.g. from the cache
+    private int size;
+
+    byte[] cipherBytes = new byte[256];
+    byte[] plain = new byte[256];
+
+    // Forget the previous fields, keeping the buffers
+    public void clear() {
+        Arrays.fill(inputs, 0, size, null);
+        Arrays.fill(caches, 0, size, null);
+        Arrays.fill(resolved, 0, size, null);
+        size = 0;
+    }
+
+    // Queue a Base64 ciphertext field; returns its slot. The sequence is only read by the next decrypt.
+    public int add(CharSequence ciphertext) {
+        return add(ciphertext, null);
+    }
+
+    // Queue a field whose plaintext is looked up in, and remembered by, the cache; a null cache decrypts it
+    public int add(CharSequence ciphertext, DecryptCache cache) {
+        if (size == inputs.length) {
+            int newLength = size * 2;
+            inputs = Arrays.copyOf(inputs, newLength);
+            starts = Arrays.copyOf(starts, newLength);
+            lengths = Arrays.copyOf(lengths, newLength);
+            caches = Arrays.copyOf(caches, newLength);
+            resolved = Arrays.copyOf(resolved, newLength);
+        }
+        inputs[size] = ciphertext;
+        lengths[size] = -1;
+        caches[size] = cache;
+        return size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isDecrypted(int slot) {
+        return resolved[checkSlot(slot)] != null || lengths[slot] >= 0;
+    }
+
+    // The plaintext of the slot, or null if it did not decrypt
+    public String toString(int slot) {
+        if (resolved[checkSlot(slot)] != null) {
+            return resolved[slot];
+        }
+        int length = lengths[slot];
+        return length < 0 ? null : new String(plain, starts[slot], length, StandardCharsets.UTF_8);
+    }
+
+    // True if the slot did not decrypt or its plaintext is only whitespace
+    public boolean isBlank(int slot) {
+        if (resolved[checkSlot(slot)] != null) {
+            return resolved[slot].isBlank();
+        }
+        int length = lengths[slot];
+        for (int i = starts[slot]; i < starts[slot] + length; i++) {
+            if ((plain[i] & 0xff) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // The ciphertext queued at the slot, e.g. to store it next to the plaintext
+    public String ciphertext(int slot) {
+        CharSequence input = inputs[checkSlot(slot)];
+        return input == null ? null : input.toString();
+    }
+
+    CharSequence input(int slot) {
+        return inputs[slot];
+    }
+
+    void decrypted(int slot, int start, int length) {
+        starts[slot] = start;
+        lengths[slot] = length;
+    }
+
+    DecryptCache cache(int slot) {
+        return caches[slot];
+    }
+
+    void resolved(int slot, String plaintext) {
+        resolved[slot] = plaintext;
+    }
+
+    void failed(int slot) {
+        lengths[slot] = -1;
+    }
+
+    // Make room for count more bytes after position in the given buffer, returns the buffer to use
+    static byte[] ensureCapacity(byte[] buffer, int position, int count) {
+        int needed = position + count;
+        return needed <= buffer.length ? buffer : Arrays.copyOf(buffer, Math.max(needed, buffer.length * 2));
+    }
+
+    private int checkSlot(int slot) {
+        if (slot < 0 || slot >= size) {
+            throw new IndexOutOfBoundsException("Slot " + slot + " out of range for " + size + " fields");
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.csv_json_project.springSecurity;
+
+import java.util.Objects;
+
+// A column value held as EncryptionUtil ciphertext and decrypted on first access. Columns that
+// validation never reads stay encrypted from the CSV field to the database, so rows that are
+// only persisted never pay for AES. A value created from plaintext is encrypted on first use of
+// its ciphertext instead. Both forms are computed at most once; a race only repeats the work.
+public final class EncryptedField {
+
+    private volatile String ciphertext;
+    private volatile String plaintext;
+    private volatile boolean decrypted;
+
+    private EncryptedField(String ciphertext, String plaintext, boolean decrypted) {
+        this.ciphertext = ciphertext;
+        this.plaintext = plaintext;
+        this.decrypted = decrypted;
+    }
+
+    // Wrap Base64 ciphertext as read from the CSV or the database; null stays null
+    public static EncryptedField ofCiphertext(CharSequence ciphertext) {
+        return ciphertext == null ? null : new EncryptedField(ciphertext.toString(), null, false);
+    }
+
+    // Wrap a value that is not encrypted yet; null stays null
+    public static EncryptedField ofPlaintext(String plaintext) {
+        return plaintext == null ? null : new EncryptedField(null, plaintext, true);
+    }
+
+    // The decrypted value, or null if the ciphertext does not decrypt
+    public String plaintext() {
+        if (!decrypted) {
+            plaintext = EncryptionUtil.decrypt(ciphertext);
+            decrypted = true;
+        }
+        return plaintext;
+    }
+
+    public String ciphertext() {
+        if (ciphertext == null) {
+            ciphertext = EncryptionUtil.encrypt(plaintext);
+        }
+        return ciphertext;
+    }
+
+    public boolean isDecrypted() {
+        return decrypted;
+    }
+
+    // Plaintext of a nullable field
+    public static String plaintextOf(EncryptedField field) {
+        return field == null ? null : field.plaintext();
+    }
+
+    // By ciphertext, so comparing or hashing never decrypts. The cipher is deterministic, equal
+    // ciphertext means equal plaintext; a plaintext-built value is encrypted once for it.
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(ciphertext());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof EncryptedField other && Objects.equals(ciphertext(), other.ciphertext());
+    }
+
+    // Never the plaintext, so logging an entity does not decrypt it
+    @Override
+    public String toString() {
+        return decrypted ? "EncryptedField[decrypted]" : "EncryptedField[encrypted]";
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.csv_json_project.springSecurity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+// Stores an EncryptedField as its ciphertext and reads it back without decrypting
+@Converter
+public class EncryptedFieldConverter implements AttributeConverter<EncryptedField, String> {
+
+    @Override
+    public String convertToDatabaseColumn(EncryptedField field) {
+        return field == null ? null : field.ciphertext();
+    }
+
+    @Override
+    public EncryptedField convertToEntityAttribute(String ciphertext) {
+        return EncryptedField.ofCiphertext(ciphertext);
+    }
+}
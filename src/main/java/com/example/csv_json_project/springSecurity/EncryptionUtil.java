@@ -6,44 +6,222 @@ import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
 
 import org.apache.tomcat.util.codec.binary.Base64;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
 
 public class EncryptionUtil {
+    private static final Logger logger = LoggerFactory.getLogger(EncryptionUtil.class);
     private static final String key = "1234567812345678";
     private static final String initVector = "1234567812345678";
     private static final String algo = "AES/CBC/PKCS5PADDING";
+    private static final int BLOCK_SIZE = 16;
+
+    // Key material never changes, build it once
+    private static final IvParameterSpec IV = new IvParameterSpec(initVector.getBytes(StandardCharsets.UTF_8));
+    private static final SecretKeySpec KEY = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "AES");
+
+    // Cipher.getInstance does a provider lookup and is not thread-safe, so every thread keeps one
+    // initialized Cipher per direction. doFinal resets it to the initialized state for the next call.
+    private static final ThreadLocal<Cipher> ENCRYPT = ThreadLocal.withInitial(() -> newCipher(Cipher.ENCRYPT_MODE));
+    private static final ThreadLocal<Cipher> DECRYPT = ThreadLocal.withInitial(() -> newCipher(Cipher.DECRYPT_MODE));
+
+    // Base64 digit values, standard and URL-safe alphabet; -1 is invalid, -2 is ignored whitespace
+    private static final byte[] BASE64_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(BASE64_VALUES, (byte) -1);
+        String digits = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        for (int i = 0; i < digits.length(); i++) {
+            BASE64_VALUES[digits.charAt(i)] = (byte) i;
+        }
+        BASE64_VALUES['-'] = 62;
+        BASE64_VALUES['_'] = 63;
+        for (char c : new char[]{' ', '\t', '\r', '\n'}) {
+            BASE64_VALUES[c] = -2;
+        }
+    }
 
     public static String encrypt(String value) {
+        if (value == null) {
+            return null;
+        }
+        Cipher cipher = ENCRYPT.get();
         try {
-            IvParameterSpec iv = new IvParameterSpec(initVector.getBytes(StandardCharsets.UTF_8));
-            SecretKeySpec skeySpec = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "AES");
+            byte[] encrypted = cipher.doFinal(value.getBytes(StandardCharsets.UTF_8));
 
-            Cipher cipher = Cipher.getInstance(algo);
-            cipher.init(Cipher.ENCRYPT_MODE, skeySpec, iv);
-
-            byte[] encrypted = cipher.doFinal(value.getBytes());
-            
             return Base64.encodeBase64String(encrypted);
-        } catch (Exception ex) {
-           ex.printStackTrace();
+        } catch (GeneralSecurityException ex) {
+            logger.error("Error encrypting value with {}", algo, ex);
+            reinit(cipher, Cipher.ENCRYPT_MODE);
+            throw new IllegalStateException("Cannot encrypt value with " + algo, ex);
         }
-        return null;
     }
 
     public static String decrypt(String encrypted) {
+        if (encrypted == null) {
+            return null;
+        }
+        Cipher cipher = DECRYPT.get();
         try {
-            IvParameterSpec iv = new IvParameterSpec(initVector.getBytes(StandardCharsets.UTF_8));
-            SecretKeySpec skeySpec = new SecretKeySpec(key.getBytes(StandardCharsets.UTF_8), "AES");
-
-            Cipher cipher = Cipher.getInstance(algo);
-            cipher.init(Cipher.DECRYPT_MODE, skeySpec, iv);
-
             byte[] original = cipher.doFinal(Base64.decodeBase64(encrypted));
-            return new String(original);
+            return new String(original, StandardCharsets.UTF_8);
         } catch (Exception ex) {
-            ex.getMessage();
+            // Not our ciphertext, e.g. a plain field of an error record
+            reinit(cipher, Cipher.DECRYPT_MODE);
         }
         return null;
     }
-}
\ No newline at end of file
+
+    // Decrypt every field queued in the batch into the batch's reusable buffers, with no allocation
+    // per field. A field that is not valid Base64 ciphertext is marked as not decrypted, where
+    // decrypt(String) would return null. Fields queued with a cache are looked up there first and
+    // their plaintext is remembered after a successful decryption.
+    public static void decryptBatch(DecryptionBatch batch) {
+        Cipher cipher = DECRYPT.get();
+        int out = 0;
+        for (int slot = 0; slot < batch.size(); slot++) {
+            CharSequence input = batch.input(slot);
+            if (input == null) {
+                batch.failed(slot);
+                continue;
+            }
+            DecryptCache cache = batch.cache(slot);
+            if (cache != null) {
+                String cached = cache.get(input);
+                if (cached != null) {
+                    batch.resolved(slot, cached);
+                    continue;
+                }
+            }
+            batch.cipherBytes = DecryptionBatch.ensureCapacity(batch.cipherBytes, 0, input.length() / 4 * 3 + 3);
+            int cipherLength = decodeBase64(input, batch.cipherBytes);
+            if (cipherLength < 0) {
+                batch.failed(slot);
+                continue;
+            }
+            batch.plain = DecryptionBatch.ensureCapacity(batch.plain, out, cipherLength + 16);
+            try {
+                int length = cipher.doFinal(batch.cipherBytes, 0, cipherLength, batch.plain, out);
+                batch.decrypted(slot, out, length);
+                out += length;
+                if (cache != null) {
+                    String plaintext = batch.toString(slot);
+                    cache.put(input, plaintext);
+                    batch.resolved(slot, plaintext);
+                }
+            } catch (Exception ex) {
+                batch.failed(slot);
+                reinit(cipher, Cipher.DECRYPT_MODE);
+            }
+        }
+    }
+
+    // Length in bytes of the ciphertext encoded in the Base64 text, counted without decoding or
+    // decrypting; -1 if the text cannot be our ciphertext, i.e. it is not Base64 or not whole AES blocks
+    public static int ciphertextLength(CharSequence base64) {
+        int digits = 0;
+        for (int i = 0; i < base64.length(); i++) {
+            char c = base64.charAt(i);
+            if (c == '=') {
+                break;
+            }
+            int value = digit(c);
+            if (value == -1) {
+                return -1;
+            }
+            if (value >= 0) {
+                digits++;
+            }
+        }
+        int length = digits * 6 / 8;
+        return digits % 4 == 1 || length == 0 || length % BLOCK_SIZE != 0 ? -1 : length;
+    }
+
+    // Whether a ciphertext of the given length can decrypt to a value of the given number of chars.
+    // PKCS5 padding adds 1 to 16 bytes, and every char takes 1 to 3 bytes of UTF-8.
+    public static boolean canHoldChars(int ciphertextLength, int chars) {
+        int maxBytes = ciphertextLength - 1;
+        int minBytes = ciphertextLength - BLOCK_SIZE;
+        return ciphertextLength > 0 && chars <= maxBytes && (long) chars * 3 >= minBytes;
+    }
+
+    // Decode Base64 into out, skipping whitespace; returns the decoded length or -1 if input is not Base64
+    private static int decodeBase64(CharSequence input, byte[] out) {
+        int end = input.length();
+        int length = 0;
+        int i = 0;
+        // Fast path: whole quantums of four plain digits
+        while (i + 4 <= end) {
+            int quantum = digit(input.charAt(i)) << 18 | digit(input.charAt(i + 1)) << 12
+                    | digit(input.charAt(i + 2)) << 6 | digit(input.charAt(i + 3));
+            if (quantum < 0) {
+                break; // Padding, whitespace or invalid, handled below
+            }
+            out[length++] = (byte) (quantum >> 16);
+            out[length++] = (byte) (quantum >> 8);
+            out[length++] = (byte) quantum;
+            i += 4;
+        }
+
+        int bits = 0;
+        int digits = 0;
+        for (; i < end; i++) {
+            char c = input.charAt(i);
+            if (c == '=') {
+                break; // Padding, nothing follows
+            }
+            int value = digit(c);
+            if (value == -2) {
+                continue;
+            }
+            if (value < 0) {
+                return -1;
+            }
+            bits = (bits << 6) | value;
+            if (++digits == 4) {
+                out[length++] = (byte) (bits >> 16);
+                out[length++] = (byte) (bits >> 8);
+                out[length++] = (byte) bits;
+                bits = 0;
+                digits = 0;
+            }
+        }
+        if (digits == 1) {
+            return -1;
+        } else if (digits == 2) {
+            out[length++] = (byte) (bits >> 4);
+        } else if (digits == 3) {
+            out[length++] = (byte) (bits >> 10);
+            out[length++] = (byte) (bits >> 2);
+        }
+        return length;
+    }
+
+    // Value of a Base64 digit, negative for anything else
+    private static int digit(char c) {
+        return c < BASE64_VALUES.length ? BASE64_VALUES[c] : -1;
+    }
+
+    private static Cipher newCipher(int mode) {
+        try {
+            Cipher cipher = Cipher.getInstance(algo);
+            cipher.init(mode, KEY, IV);
+            return cipher;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot create " + algo + " cipher", e);
+        }
+    }
+
+    // Put the cipher back into a clean state after a failed call, without another provider lookup
+    private static void reinit(Cipher cipher, int mode) {
+        try {
+            cipher.init(mode, KEY, IV);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Cannot reinitialize " + algo + " cipher", e);
+        }
+    }
+}
@@ -18,6 +18,7 @@ public class SecurityConfig {
             .csrf(csrf -> csrf.disable()) // Disable CSRF protection globally
             .authorizeHttpRequests(authorize -> authorize
                 .requestMatchers("/api/csv/upload").permitAll()  // Allow access to /api/csv/upload without authentication
+                .requestMatchers("/api/csv/jobs/**").permitAll()  // Job status of uploads
                 .requestMatchers("/h2-console/**").permitAll()
                 .anyRequest().authenticated()
                 
@@ -1,24 +1,34 @@
 package com.example.csv_json_project.controllerTesr;
 
 import com.example.csv_json_project.controller.CsvUploadController;
-import com.example.csv_json_project.services.CsvProcessorService;
-import org.junit.jupiter.api.BeforeEach;
+import com.example.csv_json_project.services.CsvJob;
+import com.example.csv_json_project.services.CsvJobService;
+import com.example.csv_json_project.services.JobEventPublisher;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Optional;
 
-import static org.mockito.ArgumentMatchers.anyString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(CsvUploadController.class)
@@ -27,8 +37,14 @@ class CsvUploadControllerTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private CsvUploadController csvUploadController;
+
+    @MockBean
+    private CsvJobService csvJobService;
+
     @MockBean
-    private CsvProcessorService csvProcessorService;
+    private JobEventPublisher jobEventPublisher;
 
     @Test
     void testUploadCsvFiles_Success() throws Exception {
@@ -37,16 +53,20 @@ class CsvUploadControllerTest {
                 "accountFile", "account.csv", MediaType.TEXT_PLAIN_VALUE, "account data".getBytes());
         MockMultipartFile customerFile = new MockMultipartFile(
                 "customerFile", "customer.csv", MediaType.TEXT_PLAIN_VALUE, "customer data".getBytes());
+        CsvJob job = new CsvJob("job-1", Path.of("Errors-job-1.json"));
+        when(csvJobService.submit(any(Path.class), any(Path.class), isNull())).thenReturn(job);
 
         // Act & Assert
         mockMvc.perform(multipart("/api/csv/upload")
                         .file(accountFile)
                         .file(customerFile))
-                .andExpect(status().isOk())
-                .andExpect(content().string("CSV files processed successfully."));
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Location", "/api/csv/jobs/job-1"))
+                .andExpect(jsonPath("$.id").value("job-1"))
+                .andExpect(jsonPath("$.state").value("QUEUED"));
 
-        // Verify that the service method was called
-        verify(csvProcessorService, times(1)).processCsvFiles(anyString(), anyString());
+        // Verify that the spooled uploads were handed to a job
+        verify(csvJobService, times(1)).submit(any(Path.class), any(Path.class), isNull());
     }
 
     @Test
@@ -61,33 +81,116 @@ class CsvUploadControllerTest {
         mockMvc.perform(multipart("/api/csv/upload")
                         .file(emptyFile)
                         .file(customerFile))
-                .andExpect(status().isInternalServerError())
-                .andExpect(content().string("Error processing CSV files: Uploaded file is empty."));
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Uploaded file is empty."));
 
-        // Verify that the service method was not called
-        verify(csvProcessorService, never()).processCsvFiles(anyString(), anyString());
+        // Verify that no job was started
+        verify(csvJobService, never()).submit(any(Path.class), any(Path.class), any());
     }
 
     @Test
-    void testUploadCsvFiles_IOException() throws Exception {
-        // Arrange
+    void testUploadCsvFiles_SpoolFailure() throws Exception {
         MockMultipartFile accountFile = new MockMultipartFile(
                 "accountFile", "account.csv", MediaType.TEXT_PLAIN_VALUE, "account data".getBytes());
         MockMultipartFile customerFile = new MockMultipartFile(
                 "customerFile", "customer.csv", MediaType.TEXT_PLAIN_VALUE, "customer data".getBytes());
+        // A regular file where the spool directory should be, so spooling fails with an IOException
+        Path notADirectory = Files.createTempFile("spool", ".txt");
+        ReflectionTestUtils.setField(csvUploadController, "spoolDir", notADirectory.resolve("spool").toString());
+        try {
+            mockMvc.perform(multipart("/api/csv/upload")
+                            .file(accountFile)
+                            .file(customerFile))
+                    .andExpect(status().isInternalServerError())
+                    .andExpect(content().string(startsWith("Error processing CSV files: ")));
+        } finally {
+            ReflectionTestUtils.setField(csvUploadController, "spoolDir", "");
+            Files.delete(notADirectory);
+        }
 
-        // Mock the service to throw an IOException
-        doThrow(new IOException("Simulated IO error")).when(csvProcessorService).processCsvFiles(anyString(), anyString());
+        verify(csvJobService, never()).submit(any(Path.class), any(Path.class), any());
+    }
+
+    @Test
+    void testUploadCsvFiles_WithPersistenceEngine() throws Exception {
+        MockMultipartFile accountFile = new MockMultipartFile(
+                "accountFile", "account.csv", MediaType.TEXT_PLAIN_VALUE, "account data".getBytes());
+        MockMultipartFile customerFile = new MockMultipartFile(
+                "customerFile", "customer.csv", MediaType.TEXT_PLAIN_VALUE, "customer data".getBytes());
+        CsvJob job = new CsvJob("job-4", Path.of("Errors-job-4.json"));
+        when(csvJobService.submit(any(Path.class), any(Path.class), eq("h2-bulk"))).thenReturn(job);
 
-        // Act & Assert
         mockMvc.perform(multipart("/api/csv/upload")
                         .file(accountFile)
-                        .file(customerFile))
-                .andExpect(status().isInternalServerError())
-                .andExpect(content().string("Error processing CSV files: Simulated IO error"));
+                        .file(customerFile)
+                        .param("engine", "h2-bulk"))
+                .andExpect(status().isAccepted());
+
+        verify(csvJobService, times(1)).checkPersistenceEngine("h2-bulk");
+        verify(csvJobService, times(1)).submit(any(Path.class), any(Path.class), eq("h2-bulk"));
+    }
+
+    @Test
+    void testUploadCsvFiles_UnknownPersistenceEngine() throws Exception {
+        MockMultipartFile accountFile = new MockMultipartFile(
+                "accountFile", "account.csv", MediaType.TEXT_PLAIN_VALUE, "account data".getBytes());
+        MockMultipartFile customerFile = new MockMultipartFile(
+                "customerFile", "customer.csv", MediaType.TEXT_PLAIN_VALUE, "customer data".getBytes());
+        doThrow(new IllegalArgumentException("Unknown persistence engine: fast"))
+                .when(csvJobService).checkPersistenceEngine("fast");
+
+        mockMvc.perform(multipart("/api/csv/upload")
+                        .file(accountFile)
+                        .file(customerFile)
+                        .param("engine", "fast"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().string("Unknown persistence engine: fast"));
+
+        // Rejected before anything was spooled or queued
+        verify(csvJobService, never()).submit(any(Path.class), any(Path.class), any());
+    }
+
+    @Test
+    void testGetJob_Found() throws Exception {
+        CsvJob job = new CsvJob("job-2", Path.of("Errors-job-2.json"));
+        job.progress().rowsRead(3, 150);
+        when(csvJobService.find("job-2")).thenReturn(Optional.of(job));
+
+        mockMvc.perform(get("/api/csv/jobs/job-2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value("job-2"))
+                .andExpect(jsonPath("$.rows.read").value(3))
+                .andExpect(jsonPath("$.errors").value(0));
+    }
+
+    @Test
+    void testGetJob_NotFound() throws Exception {
+        when(csvJobService.find("missing")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/csv/jobs/missing"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void testStreamJobEvents_Subscribes() throws Exception {
+        CsvJob job = new CsvJob("job-3", Path.of("Errors-job-3.json"));
+        when(csvJobService.find("job-3")).thenReturn(Optional.of(job));
+        when(jobEventPublisher.subscribe(job)).thenReturn(new SseEmitter(0L));
+
+        mockMvc.perform(get("/api/csv/jobs/job-3/events"))
+                .andExpect(status().isOk());
+
+        verify(jobEventPublisher, times(1)).subscribe(job);
+    }
+
+    @Test
+    void testStreamJobEvents_NotFound() throws Exception {
+        when(csvJobService.find("missing")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/api/csv/jobs/missing/events"))
+                .andExpect(status().isNotFound());
 
-        // Verify that the service method was called
-        verify(csvProcessorService, times(1)).processCsvFiles(anyString(), anyString());
+        verify(jobEventPublisher, never()).subscribe(any(CsvJob.class));
     }
 
     @Test
@@ -97,7 +200,7 @@ class CsvUploadControllerTest {
                 "file", "test.csv", MediaType.TEXT_PLAIN_VALUE, "test data".getBytes());
 
         // Act
-        Path tempFile = new CsvUploadController(csvProcessorService).saveUploadedFile(file);
+        Path tempFile = new CsvUploadController(csvJobService).saveUploadedFile(file);
 
         // Assert
         assert Files.exists(tempFile);
@@ -115,7 +218,7 @@ class CsvUploadControllerTest {
 
         // Act & Assert
         try {
-            new CsvUploadController(csvProcessorService).saveUploadedFile(emptyFile);
+            new CsvUploadController(csvJobService).saveUploadedFile(emptyFile);
         } catch (IllegalArgumentException e) {
             assert "Uploaded file is empty.".equals(e.getMessage());
         } catch (IOException e) {
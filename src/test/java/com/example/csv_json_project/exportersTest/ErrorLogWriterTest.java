@@ -0,0 +1,90 @@
+package com.example.csv_json_project.exportersTest;
+
+import com.example.csv_json_project.exporters.ErrorLogWriter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ErrorLogWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testConcurrentWritersProduceOneArray() throws Exception {
+        Path file = tempDir.resolve("Errors.json");
+        int threads = 8;
+        int batchesPerThread = 50;
+
+        try (ErrorLogWriter errorLog = new ErrorLogWriter(file)) {
+            List<Thread> writers = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                int writer = t;
+                Thread thread = new Thread(() -> {
+                    for (int b = 0; b < batchesPerThread; b++) {
+                        errorLog.write(List.of(
+                                Map.of("file_name", "Customer", "error_code", "400", "error_data", writer + "-" + b + "-a"),
+                                Map.of("file_name", "Account", "error_code", "409", "error_data", writer + "-" + b + "-b")));
+                    }
+                });
+                writers.add(thread);
+                thread.start();
+            }
+            for (Thread thread : writers) {
+                thread.join();
+            }
+            // Nothing is visible under the target name before close
+            assertFalse(Files.exists(file));
+        }
+
+        List<?> errors = new ObjectMapper().readValue(file.toFile(), List.class);
+        assertEquals(threads * batchesPerThread * 2, errors.size());
+        assertEquals(threads * batchesPerThread * 2, errors.stream().distinct().count());
+    }
+
+    @Test
+    void testEmptyLogIsEmptyArray() throws IOException {
+        Path file = tempDir.resolve("Errors.json");
+
+        try (ErrorLogWriter errorLog = new ErrorLogWriter(file)) {
+            errorLog.write(List.of());
+            assertEquals(0, errorLog.written());
+        }
+
+        List<?> errors = new ObjectMapper().readValue(file.toFile(), List.class);
+        assertTrue(errors.isEmpty());
+    }
+
+    @Test
+    void testReplacesPreviousFile() throws IOException {
+        Path file = tempDir.resolve("Errors.json");
+        Files.writeString(file, "[ { \"stale\" : \"error\" } ]");
+
+        try (ErrorLogWriter errorLog = new ErrorLogWriter(file)) {
+            errorLog.write(List.of(Map.of("error_code", "500")));
+        }
+
+        List<?> errors = new ObjectMapper().readValue(file.toFile(), List.class);
+        assertEquals(List.of(Map.of("error_code", "500")), errors);
+        try (var files = Files.list(tempDir)) {
+            assertEquals(1, files.count()); // The temporary file was moved, not copied
+        }
+    }
+
+    @Test
+    void testWriteAfterCloseFails() throws IOException {
+        ErrorLogWriter errorLog = new ErrorLogWriter(tempDir.resolve("Errors.json"));
+        errorLog.close();
+
+        assertThrows(IllegalStateException.class, () -> errorLog.write(List.of(Map.of("error_code", "400"))));
+    }
+}
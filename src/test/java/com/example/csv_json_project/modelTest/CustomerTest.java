@@ -4,6 +4,8 @@ import com.example.csv_json_project.model.Account;
 import com.example.csv_json_project.model.Customer;
 import com.example.csv_json_project.repositories.AccountRepository;
 import com.example.csv_json_project.repositories.CustomerRepository;
+import com.example.csv_json_project.springSecurity.EncryptedField;
+import com.example.csv_json_project.springSecurity.EncryptionUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -115,4 +117,15 @@ class CustomerTest {
         String expectedToString = "Customer [customer_Id=1, name=John, surname=Doe, address=123 Main St, zipCode=12345, nationalId=1234567890, birthDate=1996-01-01, accounts=" + customer.getAccounts() + "]";
         assertEquals(expectedToString, customer.toString());
     }
-}
\ No newline at end of file
+
+    @Test
+    void testCustomerToStringKeepsEncryptedNames() {
+        Customer customer = new Customer();
+        customer.setCustomer_Id(1L);
+        customer.setEncryptedName(EncryptedField.ofCiphertext(EncryptionUtil.encrypt("John")));
+
+        assertTrue(customer.toString().contains("name=<encrypted>"));
+        assertFalse(customer.getEncryptedName().isDecrypted());
+        assertEquals("John", customer.getName());
+    }
+}
@@ -1,9 +1,11 @@
 package com.example.csv_json_project.repositoriesTest;
 
 import com.example.csv_json_project.model.Account;
+import com.example.csv_json_project.model.BalanceReportRow;
 import com.example.csv_json_project.model.Customer;
 import com.example.csv_json_project.repositories.AccountRepository;
 import com.example.csv_json_project.repositories.CustomerRepository;
+import com.example.csv_json_project.springSecurity.EncryptedField;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -104,6 +106,29 @@ class AccountRepositoryTest {
         assertTrue(accounts.contains(account2));
     }
 
+    @Test
+    void testFindBalanceReport() {
+        Account low = new Account("1234567890123456789012", 1, 1000.0, Date.valueOf("2023-01-01"), 500.0, customer);
+        Account high = new Account("2345678901234567890123", 2, 2000.0, Date.valueOf("2023-02-01"), 1500.0, customer);
+        high.setEncryptedBalance("encryptedBalance");
+        accountRepository.save(low);
+        accountRepository.save(high);
+        entityManager.flush();
+        entityManager.clear();
+
+        List<BalanceReportRow> rows = accountRepository.findBalanceReport(1000.0);
+
+        // Only the account above the threshold, flattened with the columns of its customer
+        assertEquals(1, rows.size());
+        BalanceReportRow row = rows.get(0);
+        assertEquals(1L, row.customerId());
+        assertEquals("John", EncryptedField.plaintextOf(row.name()));
+        assertEquals("2345678901234567890123", row.accountNumber());
+        assertEquals(1500.0, row.balance());
+        assertEquals("encryptedBalance", row.encryptedBalance());
+        assertEquals(2, accountRepository.findBalanceReport(100.0).size());
+    }
+
     @Test
     void testDeleteAccount() {
         // Create an account
@@ -0,0 +1,114 @@
+package com.example.csv_json_project.servicesTest;
+
+import com.example.csv_json_project.services.AdaptiveChunkTask;
+import com.example.csv_json_project.services.DelimiterScanner;
+import com.example.csv_json_project.services.MappedCsvSplitter;
+import com.example.csv_json_project.services.WorkerUtilization;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveChunkTaskTest {
+
+    @Test
+    void testLines_EveryLineProcessedOnceInSmallChunks() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            lines.add("line-" + i);
+        }
+        List<String> processed = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger chunks = new AtomicInteger();
+        WorkerUtilization utilization = new WorkerUtilization();
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            pool.invoke(new AdaptiveChunkTask(AdaptiveChunkTask.lines(lines, 16, chunk -> () -> {
+                chunks.incrementAndGet();
+                assertTrue(chunk.size() >= 16);
+                processed.addAll(chunk);
+            }), utilization));
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(lines.size(), processed.size());
+        assertEquals(lines.size(), processed.stream().distinct().count());
+        assertTrue(chunks.get() > 1, "Idle workers should have been given split-off chunks");
+        assertFalse(utilization.busyRatios().isEmpty());
+    }
+
+    @Test
+    void testRange_SplitsOnLineBoundaries() throws IOException {
+        Path file = Files.createTempFile("adaptive", ".csv");
+        try {
+            StringBuilder content = new StringBuilder();
+            for (int i = 0; i < 5_000; i++) {
+                content.append("row-").append(i).append(",value\n");
+            }
+            Files.writeString(file, content.toString());
+
+            List<String> processed = Collections.synchronizedList(new ArrayList<>());
+            ForkJoinPool pool = new ForkJoinPool(4);
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedCsvSplitter.ByteRange whole = new MappedCsvSplitter.ByteRange(0, channel.size());
+                pool.invoke(new AdaptiveChunkTask(AdaptiveChunkTask.range(channel, whole, 1024, range -> () -> {
+                    try {
+                        MappedCsvSplitter.LineCursor cursor = new MappedCsvSplitter.LineCursor(
+                                MappedCsvSplitter.map(channel, range), DelimiterScanner.create(false));
+                        while (cursor.next()) {
+                            processed.add(new String(cursor.data(), cursor.lineStart(),
+                                    cursor.lineEnd() - cursor.lineStart(), StandardCharsets.UTF_8));
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }), new WorkerUtilization()));
+            } finally {
+                pool.shutdown();
+            }
+
+            assertEquals(5_000, processed.size());
+            assertEquals(5_000, processed.stream().distinct().count());
+            assertTrue(processed.stream().allMatch(line -> line.matches("row-\\d+,value")));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void testFailingChunkStillJoinsTheRest() {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            lines.add("line-" + i);
+        }
+        AtomicInteger processed = new AtomicInteger();
+
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            AdaptiveChunkTask task = new AdaptiveChunkTask(AdaptiveChunkTask.lines(lines, 10, chunk -> () -> {
+                if (chunk.contains("line-0")) {
+                    throw new IllegalStateException("boom");
+                }
+                processed.addAndGet(chunk.size());
+            }), new WorkerUtilization());
+            assertThrows(IllegalStateException.class, () -> pool.invoke(task));
+        } finally {
+            pool.shutdown();
+        }
+
+        assertTrue(processed.get() > 0);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.csv_json_project.servicesTest;
+
+import com.example.csv_json_project.model.Customer;
+import com.example.csv_json_project.repositories.CustomerRepository;
+import com.example.csv_json_project.services.BatchPersister;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest(properties = "csv.persistence.batch-size=3")
+class BatchPersisterTest {
+
+    @Autowired
+    private BatchPersister batchPersister;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    private static Customer customer(long id) {
+        Customer customer = new Customer();
+        customer.setCustomer_Id(id);
+        customer.setName("John");
+        customer.setSurname("Doe");
+        customer.setNationalId("1234567890");
+        customer.setBirthDate(Date.valueOf("1996-01-01"));
+        return customer;
+    }
+
+    @Test
+    void testPersistAll_InsertsEveryRow() {
+        List<Customer> customers = new ArrayList<>();
+        for (long id = 9001; id <= 9010; id++) {
+            customers.add(customer(id));
+        }
+
+        batchPersister.persistAll(customers);
+
+        for (long id = 9001; id <= 9010; id++) {
+            assertTrue(customerRepository.existsById(id));
+        }
+        assertEquals("Doe", customerRepository.findById(9005L).orElseThrow().getSurname());
+        assertTrue(batchPersister.rows() >= 10);
+    }
+
+    @Test
+    void testPersistAll_RollsBackWholeBatchOnDuplicate() {
+        batchPersister.persistAll(List.of(customer(9101)));
+
+        // The second row already exists, so neither row of the batch is saved
+        assertThrows(RuntimeException.class, () -> batchPersister.persistAll(List.of(customer(9102), customer(9101))));
+
+        assertFalse(customerRepository.existsById(9102L));
+        assertTrue(customerRepository.existsById(9101L));
+    }
+
+    @Test
+    void testPersistAll_IsolatesFailingRows() {
+        batchPersister.persistAll(List.of(customer(9201), customer(9204)));
+        List<Customer> customers = new ArrayList<>();
+        for (long id = 9200; id <= 9207; id++) {
+            customers.add(customer(id));
+        }
+        Map<Integer, RuntimeException> failures = new HashMap<>();
+
+        batchPersister.persistAll(customers, failures::put);
+
+        // Only the two existing ids fail, as duplicates; every other row is committed
+        assertEquals(Set.of(1, 4), failures.keySet());
+        assertInstanceOf(DataIntegrityViolationException.class, failures.get(1));
+        for (long id = 9200; id <= 9207; id++) {
+            assertTrue(customerRepository.existsById(id));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.csv_json_project.servicesTest;
+
+import com.example.csv_json_project.services.ColumnBinder;
+import com.example.csv_json_project.services.CsvTokenizer;
+import com.example.csv_json_project.springSecurity.EncryptionUtil;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ColumnBinderTest {
+
+    private ColumnBinder.Builder<Map<String, String>> builder() {
+        return ColumnBinder.<Map<String, String>>builder("Row", HashMap::new)
+                .column("ID", (row, fields, column) -> row.put("id", fields.trimmedString(column)))
+                .column("NAME", (row, fields, column) -> row.put("name", fields.trimmedString(column)));
+    }
+
+    private CsvTokenizer tokenize(String line) {
+        CsvTokenizer fields = new CsvTokenizer();
+        fields.tokenize(line);
+        return fields;
+    }
+
+    @Test
+    void testBind_FollowsHeaderOrder() throws Exception {
+        ColumnBinder<Map<String, String>> binder = builder().build(tokenize("name,EXTRA,id"));
+
+        Map<String, String> row = binder.bind(tokenize("Alice,ignored,7"));
+
+        assertEquals("7", row.get("id"));
+        assertEquals("Alice", row.get("name"));
+    }
+
+    @Test
+    void testBind_DefaultColumnOrder() throws Exception {
+        ColumnBinder<Map<String, String>> binder = builder().build("ID", "NAME");
+
+        Map<String, String> row = binder.bind(tokenize("7,Alice"));
+
+        assertEquals("7", row.get("id"));
+        assertEquals("Alice", row.get("name"));
+    }
+
+    @Test
+    void testBuild_MissingColumn() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> builder().build(tokenize("ID,OTHER")));
+        assertEquals("Missing Row column: NAME", e.getMessage());
+    }
+
+    @Test
+    void testBind_InsufficientFields() {
+        ColumnBinder<Map<String, String>> binder = builder().build(tokenize("OTHER,ID,NAME"));
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> binder.bind(tokenize("x,7")));
+        assertEquals("Insufficient fields for Row", e.getMessage());
+    }
+
+    @Test
+    void testBind_DecryptsEncryptedColumnsTogether() throws Exception {
+        ColumnBinder<Map<String, String>> binder = ColumnBinder.<Map<String, String>>builder("Row", HashMap::new)
+                .column("ID", (row, fields, column) -> row.put("id", fields.trimmedString(column)))
+                .encryptedColumn("NAME", (row, decrypted, slot) -> row.put("name", decrypted.toString(slot)))
+                .encryptedColumn("SURNAME", (row, decrypted, slot) -> row.put("surname", decrypted.toString(slot)))
+                .build(tokenize("SURNAME,ID,NAME"));
+
+        Map<String, String> row = binder.bind(tokenize(EncryptionUtil.encrypt("Doe") + ",7, " + EncryptionUtil.encrypt("John") + " "));
+        assertEquals("7", row.get("id"));
+        assertEquals("John", row.get("name"));
+        assertEquals("Doe", row.get("surname"));
+
+        // A field that is not ciphertext binds as null, the next row decrypts normally
+        row = binder.bind(tokenize("plain text,8," + EncryptionUtil.encrypt("Jane")));
+        assertNull(row.get("surname"));
+        assertEquals("Jane", row.get("name"));
+    }
+
+    @Test
+    void testPrecheck_MalformedWinsOverInvalid() {
+        ColumnBinder<Map<String, String>> binder = builder()
+                .check("ID", value -> value.length() == 1 ? ColumnBinder.Verdict.VALID : ColumnBinder.Verdict.INVALID)
+                .check("NAME", value -> value.length() > 0 ? ColumnBinder.Verdict.VALID : ColumnBinder.Verdict.MALFORMED)
+                .build(tokenize("NAME,ID"));
+
+        assertEquals(ColumnBinder.Verdict.VALID, binder.precheck(tokenize("John,7")));
+        assertEquals(ColumnBinder.Verdict.INVALID, binder.precheck(tokenize("John,77")));
+        assertEquals(ColumnBinder.Verdict.MALFORMED, binder.precheck(tokenize(",77")));
+        // Too short to bind, left to bind to report
+        assertEquals(ColumnBinder.Verdict.VALID, binder.precheck(tokenize("John")));
+    }
+
+    @Test
+    void testPrecheck_InvalidRowWithAColumnThatFailsToBindIsLeftToBind() {
+        ColumnBinder<Map<String, String>> binder = ColumnBinder.<Map<String, String>>builder("Row", HashMap::new)
+                .column("ID", (row, fields, column) -> row.put("id", String.valueOf(fields.parseLong(column))))
+                .column("NAME", (row, fields, column) -> row.put("name", fields.trimmedString(column)))
+                .check("NAME", value -> value.length() < 10 ? ColumnBinder.Verdict.VALID : ColumnBinder.Verdict.INVALID)
+                .build(tokenize("ID,NAME"));
+
+        assertEquals(ColumnBinder.Verdict.INVALID, binder.precheck(tokenize("7,Bartholomew")));
+        // Binding the id fails before validation could see the name, bind reports the row as it would have
+        assertEquals(ColumnBinder.Verdict.VALID, binder.precheck(tokenize("seven,Bartholomew")));
+        assertThrows(NumberFormatException.class, () -> binder.bind(tokenize("seven,Bartholomew")));
+    }
+
+    @Test
+    void testBuild_RejectsCheckOfUnboundColumn() {
+        ColumnBinder.Builder<Map<String, String>> builder = builder().check("OTHER", value -> ColumnBinder.Verdict.VALID);
+
+        assertThrows(IllegalArgumentException.class, () -> builder.build(tokenize("ID,NAME,OTHER")));
+    }
+}
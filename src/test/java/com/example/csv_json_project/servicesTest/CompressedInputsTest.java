@@ -0,0 +1,70 @@
+package com.example.csv_json_project.servicesTest;
+
+import com.example.csv_json_project.services.CompressedInputs;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompressedInputsTest {
+
+    private static final String CSV = "CUSTOMER_ID,ADDRESS\n1,123 Main St\n";
+
+    @Test
+    void testDecompressIfNeeded_Gzip() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(compressed)) {
+            out.write(CSV.getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(CSV, readAll(CompressedInputs.decompressIfNeeded(new ByteArrayInputStream(compressed.toByteArray()))));
+    }
+
+    @Test
+    void testDecompressIfNeeded_Deflate() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (OutputStream out = new DeflaterOutputStream(compressed)) {
+            out.write(CSV.getBytes(StandardCharsets.UTF_8));
+        }
+        assertEquals(CSV, readAll(CompressedInputs.decompressIfNeeded(new ByteArrayInputStream(compressed.toByteArray()))));
+    }
+
+    @Test
+    void testDecompressIfNeeded_PlainAndTinyInputPassThrough() throws IOException {
+        assertEquals(CSV, readAll(CompressedInputs.decompressIfNeeded(new ByteArrayInputStream(CSV.getBytes(StandardCharsets.UTF_8)))));
+        assertEquals("x", readAll(CompressedInputs.decompressIfNeeded(new ByteArrayInputStream(new byte[]{'x'}))));
+        assertEquals("", readAll(CompressedInputs.decompressIfNeeded(new ByteArrayInputStream(new byte[0]))));
+    }
+
+    @Test
+    void testDetect_File() throws IOException {
+        Path plain = Files.createTempFile("plain", ".csv");
+        Path gzip = Files.createTempFile("compressed", ".csv.gz");
+        try {
+            Files.writeString(plain, CSV);
+            try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(gzip))) {
+                out.write(CSV.getBytes(StandardCharsets.UTF_8));
+            }
+            assertEquals(CompressedInputs.Compression.NONE, CompressedInputs.detect(plain));
+            assertEquals(CompressedInputs.Compression.GZIP, CompressedInputs.detect(gzip));
+        } finally {
+            Files.deleteIfExists(plain);
+            Files.deleteIfExists(gzip);
+        }
+    }
+
+    private String readAll(InputStream input) throws IOException {
+        try (input) {
+            return new String(input.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.csv_json_project.servicesTest;
+
+import com.example.csv_json_project.services.CsvBatchReader;
+import com.example.csv_json_project.services.CsvRecordBoundary;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvBatchReaderTest {
+
+    @Test
+    void testNextBatch_SplitsIntoFixedSizeBatches() throws IOException {
+        try (CsvBatchReader reader = new CsvBatchReader(new StringReader("a\nb\nc\nd\ne\n"), 2)) {
+            assertEquals(List.of("a", "b"), reader.nextBatch());
+            assertEquals(List.of("c", "d"), reader.nextBatch());
+            assertEquals(List.of("e"), reader.nextBatch());
+            assertNull(reader.nextBatch());
+        }
+    }
+
+    @Test
+    void testNextBatch_SkipsEmptyLines() throws IOException {
+        try (CsvBatchReader reader = new CsvBatchReader(new StringReader("a\n\n   \nb\n"), 10)) {
+            assertEquals(List.of("a", "b"), reader.nextBatch());
+            assertNull(reader.nextBatch());
+        }
+    }
+
+    @Test
+    void testNextBatch_JoinsQuotedNewlines() throws IOException {
+        String csv = "1,\"a\nb\",x\n2,\"say \"\"hi\"\"\n\n\",y\n3,c,z\n";
+        try (CsvBatchReader reader = new CsvBatchReader(new StringReader(csv), 2)) {
+            assertEquals(List.of("1,\"a\nb\",x", "2,\"say \"\"hi\"\"\n\n\",y"), reader.nextBatch());
+            assertEquals(List.of("3,c,z"), reader.nextBatch());
+            assertNull(reader.nextBatch());
+        }
+    }
+
+    @Test
+    void testNextBatch_StrayAndUnterminatedQuotesOnlyFailTheirOwnLine() throws IOException {
+        // A quote inside an unquoted field is content; an open quote that never closes keeps its line alone
+        String csv = "1,O\"Brien,x\n2,\"unterminated,y\n3,c,z\n4,\"d\",z\n";
+        try (CsvBatchReader reader = new CsvBatchReader(new StringReader(csv), 10)) {
+            assertEquals(List.of("1,O\"Brien,x", "2,\"unterminated,y", "3,c,z", "4,\"d\",z"), reader.nextBatch());
+            assertNull(reader.nextBatch());
+        }
+    }
+
+    @Test
+    void testNextBatch_QuoteOpenPastTheMaximumRecordLength() throws IOException {
+        StringBuilder csv = new StringBuilder("0,\"open\n");
+        List<String> rows = new ArrayList<>();
+        rows.add("0,\"open");
+        for (int i = 1; rows.size() * 40 < 2 * CsvRecordBoundary.MAX_RECORD_LENGTH; i++) {
+            String row = i + ",plain row without quotes of about forty characters";
+            rows.add(row);
+            csv.append(row).append('\n');
+        }
+        // The lines read ahead for the open quote are records of their own
+        try (CsvBatchReader reader = new CsvBatchReader(new StringReader(csv.toString()), rows.size() + 1)) {
+            assertEquals(rows, reader.nextBatch());
+            assertNull(reader.nextBatch());
+        }
+    }
+
+    @Test
+    void testInvalidBatchSize() {
+        assertThrows(IllegalArgumentException.class, () -> new CsvBatchReader(new StringReader(""), 0));
+    }
+}
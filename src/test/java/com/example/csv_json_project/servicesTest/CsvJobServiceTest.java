@@ -0,0 +1,158 @@
+package com.example.csv_json_project.servicesTest;
+
+import com.example.csv_json_project.services.CsvJob;
+import com.example.csv_json_project.services.CsvJobService;
+import com.example.csv_json_project.services.CsvProcessorService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class CsvJobServiceTest {
+
+    private CsvProcessorService csvProcessorService;
+    private CsvJobService csvJobService;
+
+    @BeforeEach
+    void setUp() {
+        csvProcessorService = mock(CsvProcessorService.class);
+        when(csvProcessorService.newJob()).thenAnswer(invocation -> {
+            String id = UUID.randomUUID().toString();
+            return new CsvJob(id, Path.of("Errors-" + id + ".json"));
+        });
+
+        csvJobService = new CsvJobService();
+        ReflectionTestUtils.setField(csvJobService, "csvProcessorService", csvProcessorService);
+        ReflectionTestUtils.setField(csvJobService, "maxConcurrent", 1);
+        ReflectionTestUtils.setField(csvJobService, "retained", 1);
+        csvJobService.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        csvJobService.shutdown();
+    }
+
+    @Test
+    void testSubmit_ReturnsBeforeProcessingAndDeletesSpooledFiles() throws Exception {
+        Path accountFile = Files.createTempFile("account", ".csv");
+        Path customerFile = Files.createTempFile("customer", ".csv");
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            CsvJob job = invocation.getArgument(2);
+            job.progress().rowsRead(2, 100);
+            job.progress().rowDecrypted();
+            job.progress().rowPersisted();
+            release.await();
+            return null;
+        }).when(csvProcessorService).processCsvFiles(anyString(), anyString(), any(CsvJob.class));
+
+        CsvJob job = csvJobService.submit(accountFile, customerFile);
+
+        // The caller gets the job back while it is still waiting or running
+        assertFalse(job.isFinished());
+        assertSame(job, csvJobService.find(job.id()).orElseThrow());
+
+        release.countDown();
+        awaitFinished(job);
+
+        CsvJob.Status status = job.status();
+        assertEquals(CsvJob.State.SUCCEEDED, status.state());
+        assertEquals(2L, status.rows().get("read"));
+        assertEquals(1L, status.rows().get("decrypted"));
+        assertEquals(1L, status.rows().get("persisted"));
+        assertNotNull(status.startedAt());
+        assertNotNull(status.finishedAt());
+        assertFalse(Files.exists(accountFile));
+        assertFalse(Files.exists(customerFile));
+    }
+
+    @Test
+    void testSubmit_FailedJobKeepsItsError() throws Exception {
+        doThrow(new IOException("Simulated IO error"))
+                .when(csvProcessorService).processCsvFiles(anyString(), anyString(), any(CsvJob.class));
+
+        CsvJob job = csvJobService.submit(Files.createTempFile("account", ".csv"), Files.createTempFile("customer", ".csv"));
+        awaitFinished(job);
+
+        assertEquals(CsvJob.State.FAILED, job.state());
+        assertEquals("Simulated IO error", job.status().failure());
+    }
+
+    @Test
+    void testSubmit_ErrorMarksJobFailed() throws Exception {
+        doThrow(new OutOfMemoryError("Simulated OOM"))
+                .when(csvProcessorService).processCsvFiles(anyString(), anyString(), any(CsvJob.class));
+
+        CsvJob job = csvJobService.submit(Files.createTempFile("account", ".csv"), Files.createTempFile("customer", ".csv"));
+        awaitFinished(job);
+
+        assertEquals(CsvJob.State.FAILED, job.state());
+        assertEquals("Simulated OOM", job.status().failure());
+    }
+
+    @Test
+    void testSubmit_WithPersistenceEngine() throws Exception {
+        CsvJob job = csvJobService.submit(Files.createTempFile("account", ".csv"), Files.createTempFile("customer", ".csv"),
+                "h2-bulk");
+        awaitFinished(job);
+
+        assertEquals("h2-bulk", job.persistenceEngine());
+    }
+
+    @Test
+    void testSubmit_UnknownPersistenceEngineIsRejected() throws Exception {
+        doThrow(new IllegalArgumentException("Unknown persistence engine: fast"))
+                .when(csvProcessorService).checkPersistenceEngine("fast");
+
+        assertThrows(IllegalArgumentException.class, () -> csvJobService.submit(
+                Files.createTempFile("account", ".csv"), Files.createTempFile("customer", ".csv"), "fast"));
+        verify(csvProcessorService, never()).newJob();
+    }
+
+    @Test
+    void testFinishedJobsBeyondRetentionAreForgotten() throws Exception {
+        CsvJob first = csvJobService.submit(Files.createTempFile("account", ".csv"), Files.createTempFile("customer", ".csv"));
+        awaitFinished(first);
+        CsvJob second = csvJobService.submit(Files.createTempFile("account", ".csv"), Files.createTempFile("customer", ".csv"));
+        awaitFinished(second);
+
+        assertTrue(csvJobService.find(first.id()).isEmpty());
+        assertTrue(csvJobService.find(second.id()).isPresent());
+    }
+
+    @Test
+    void testForgottenJobsLoseTheirErrorFile() throws Exception {
+        CsvJob first = csvJobService.submit(Files.createTempFile("account", ".csv"), Files.createTempFile("customer", ".csv"));
+        awaitFinished(first);
+        Files.writeString(first.errorFile(), "[]");
+        try {
+            CsvJob second = csvJobService.submit(Files.createTempFile("account", ".csv"), Files.createTempFile("customer", ".csv"));
+            awaitFinished(second);
+
+            assertFalse(Files.exists(first.errorFile()));
+        } finally {
+            Files.deleteIfExists(first.errorFile());
+        }
+    }
+
+    private void awaitFinished(CsvJob job) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!job.isFinished() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(job.isFinished(), "Job did not finish in time");
+    }
+}
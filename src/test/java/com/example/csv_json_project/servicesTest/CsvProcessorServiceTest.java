@@ -3,18 +3,21 @@ package com.example.csv_json_project.servicesTest;
 import com.example.csv_json_project.exporters.JsonExporter;
 import com.example.csv_json_project.exporters.XmlExporter;
 import com.example.csv_json_project.model.Account;
+import com.example.csv_json_project.model.BalanceReportRow;
 import com.example.csv_json_project.model.Customer;
 import com.example.csv_json_project.repositories.AccountRepository;
 import com.example.csv_json_project.repositories.CustomerRepository;
 import com.example.csv_json_project.services.CsvProcessorService;
+import com.example.csv_json_project.springSecurity.EncryptedField;
+import com.example.csv_json_project.springSecurity.EncryptionUtil;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
 
 import java.io.IOException;
-import java.lang.reflect.Field;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.sql.Date;
@@ -24,7 +27,8 @@ import java.util.Map;
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
 
-@SpringBootTest
+// Rows are saved one by one through the mocked repositories, so the saves can be verified
+@SpringBootTest(properties = "csv.persistence.engine=row")
 class CsvProcessorServiceTest {
 
     @MockBean
@@ -62,7 +66,7 @@ class CsvProcessorServiceTest {
     }
 
     @Test
-    void testProcessCsvFiles() throws IOException, NoSuchFieldException, IllegalAccessException {
+    void testProcessCsvFiles() throws IOException {
         // Mock repository methods
         when(customerRepository.findById(1L)).thenReturn(java.util.Optional.of(new Customer()));
 
@@ -71,69 +75,55 @@ class CsvProcessorServiceTest {
 
         verify(accountRepository, times(1)).save(any(Account.class));
         verify(customerRepository, times(1)).save(any(Customer.class));
-        verify(jsonExporter, times(1)).exportToJson(anyList(), eq("errors.json"));
+        verify(jsonExporter, never()).exportToJson(anyList(), eq("errors.json"));
         verify(jsonExporter, times(1)).exportToJson(anyList(), eq("customers_balance_gt_1000.json"));
+        // Errors are streamed to the job's error file instead
+        assertTrue(Files.exists(Path.of("Errors.json")));
         verify(xmlExporter, times(1)).exportToXml(anyList(), eq("customers_balance_gt_1000.xml"));
-
-        
-        Field sharedErrorsField = CsvProcessorService.class.getDeclaredField("sharedErrors");
-        sharedErrorsField.setAccessible(true);
-        List<Map<String, String>> sharedErrors = (List<Map<String, String>>) sharedErrorsField.get(csvProcessorService);
-
-        // Verify sharedErrors
-        assertTrue(sharedErrors.isEmpty());
     }
 
     @Test
-    void testReadCsvFile() throws IOException {
-        List<String> lines = csvProcessorService.readCsvFile(tempAccountFile.toString());
-        assertEquals(2, lines.size());
-        assertEquals("ACCOUNT_NUMBER,ACCOUNT_TYPE,ACCOUNT_LIMIT,BALANCE,OPEN_DATE,CUSTOMER_ID", lines.get(0));
-        assertEquals("1234567890123456789012,1,1000,500,2023-01-01,1", lines.get(1));
+    void testGenerateXmlAndJsonFiles() throws IOException {
+        // Mock repository methods
+        BalanceReportRow row = new BalanceReportRow(1L, EncryptedField.ofPlaintext("John"), EncryptedField.ofPlaintext("Doe"),
+                "1234567890", "1234567890123456789012", null, Date.valueOf("2023-01-01"), 1500.0, null);
+        when(accountRepository.findBalanceReport(1000.0)).thenReturn(List.of(row));
+
+        
+        csvProcessorService.generateXmlAndJsonFiles();
+
+        // Verify interactions
+        verify(jsonExporter, times(1)).exportToJson(anyList(), eq("customers_balance_gt_1000.json"));
+        verify(xmlExporter, times(1)).exportToXml(anyList(), eq("customers_balance_gt_1000.xml"));
+        // The report is filtered by the database, no customers are loaded
+        verify(customerRepository, never()).findAll();
     }
 
     @Test
-    void testGenerateErrorJsonFile() throws IOException, NoSuchFieldException, IllegalAccessException {
-        // Mock shared errors
-        Field sharedErrorsField = CsvProcessorService.class.getDeclaredField("sharedErrors");
-        sharedErrorsField.setAccessible(true);
-        List<Map<String, String>> sharedErrors = (List<Map<String, String>>) sharedErrorsField.get(csvProcessorService);
-        sharedErrors.add(Map.of("error", "test error"));
+    void testGenerateXmlAndJsonFiles_NoMatchingAccounts() throws IOException {
+        when(accountRepository.findBalanceReport(1000.0)).thenReturn(List.of());
 
-    
-        csvProcessorService.generateErrorJsonFile();
+        csvProcessorService.generateXmlAndJsonFiles();
 
-        
-        verify(jsonExporter, times(1)).exportToJson(anyList(), eq("errors.json"));
+        verify(jsonExporter, never()).exportToJson(anyList(), anyString());
+        verify(xmlExporter, never()).exportToXml(anyList(), anyString());
     }
 
     @Test
-    void testGenerateXmlAndJsonFiles() throws IOException, NoSuchFieldException, IllegalAccessException {
-        // Mock repository methods
-        Customer customer = new Customer();
-        customer.setCustomer_Id(1L);
-        customer.setName("John");
-        customer.setSurname("Doe");
-        customer.setNationalId("1234567890");
-        Account account = new Account();
-        account.setAccountNumber("1234567890123456789012");
-        account.setBalance(1500.0);
-        account.setOpenDate(Date.valueOf("2023-01-01"));
-        customer.getAccounts().add(account);
-        when(customerRepository.findAll()).thenReturn(List.of(customer));
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    void testGenerateXmlAndJsonFiles_PassesUploadedCiphertextThrough() throws IOException {
+        BalanceReportRow reportRow = new BalanceReportRow(1L, EncryptedField.ofCiphertext(EncryptionUtil.encrypt("John")),
+                EncryptedField.ofPlaintext("Doe"), null, "1234567890123456789012", "uploadedAccountNumber",
+                Date.valueOf("2023-01-01"), 1500.0, "uploadedBalance");
+        when(accountRepository.findBalanceReport(1000.0)).thenReturn(List.of(reportRow));
 
-        
         csvProcessorService.generateXmlAndJsonFiles();
 
-        // Verify interactions
-        verify(jsonExporter, times(1)).exportToJson(anyList(), eq("customers_balance_gt_1000.json"));
-        verify(xmlExporter, times(1)).exportToXml(anyList(), eq("customers_balance_gt_1000.xml"));
-
-        Field sharedErrorsField = CsvProcessorService.class.getDeclaredField("sharedErrors");
-        sharedErrorsField.setAccessible(true);
-        List<Map<String, String>> sharedErrors = (List<Map<String, String>>) sharedErrorsField.get(csvProcessorService);
-
-        // Verify sharedErrors
-        assertTrue(sharedErrors.isEmpty());
+        ArgumentCaptor<List<Map<String, Object>>> exported = ArgumentCaptor.forClass((Class) List.class);
+        verify(jsonExporter).exportToJson(exported.capture(), eq("customers_balance_gt_1000.json"));
+        Map<String, Object> row = exported.getValue().get(0);
+        assertEquals("John", row.get("Customer_Name"));
+        assertEquals("uploadedAccountNumber", row.get("Encrypted_Account_Number"));
+        assertEquals("uploadedBalance", row.get("Encrypted_Balance"));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,92 @@
+package com.example.csv_json_project.servicesTest;
+
+import com.example.csv_json_project.services.CsvTokenizer;
+import com.example.csv_json_project.services.DelimiterScanner;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvTokenizerTest {
+
+    private final CsvTokenizer tokenizer = new CsvTokenizer();
+
+    @Test
+    void testTokenize_PlainFields() {
+        assertEquals(3, tokenizer.tokenize("1, 123 Main St ,12345"));
+        assertEquals("1", tokenizer.field(0).toString());
+        assertEquals(" 123 Main St ", tokenizer.field(1).toString());
+        assertEquals("123 Main St", tokenizer.trimmedString(1));
+        assertEquals(12345L, tokenizer.parseLong(2));
+    }
+
+    @Test
+    void testTokenize_QuotedFieldWithCommaAndEscapedQuote() {
+        assertEquals(3, tokenizer.tokenize("1,\"12 Main St, Apt \"\"B\"\"\",12345"));
+        assertEquals("12 Main St, Apt \"B\"", tokenizer.trimmedString(1));
+        assertEquals(12345, tokenizer.parseInt(2));
+    }
+
+    @Test
+    void testTokenize_EmptyAndTrailingFields() {
+        assertEquals(4, tokenizer.tokenize("a,,b,"));
+        assertTrue(tokenizer.isBlank(1));
+        assertTrue(tokenizer.isBlank(3));
+        assertArrayEquals(new String[]{"a", "", "b", ""}, tokenizer.toArray());
+    }
+
+    @Test
+    void testTokenize_ReusesBuffersAcrossLines() {
+        tokenizer.tokenize("a very long first line,with,several,fields,to,grow,the,buffers,beyond,sixteen,entries,"
+                + "x,x,x,x,x,x,x,x,x");
+        assertEquals(2, tokenizer.tokenize("x,y"));
+        assertEquals("y", tokenizer.trimmedString(1));
+        assertThrows(IndexOutOfBoundsException.class, () -> tokenizer.field(2));
+    }
+
+    @Test
+    void testTokenize_UnterminatedQuote() {
+        assertThrows(IllegalArgumentException.class, () -> tokenizer.tokenize("1,\"unterminated,2"));
+    }
+
+    @Test
+    void testEqualsIgnoreCase() {
+        tokenizer.tokenize(" customer_id ,ADDRESS");
+        assertTrue(tokenizer.equalsIgnoreCase(0, "CUSTOMER_ID"));
+        assertFalse(tokenizer.equalsIgnoreCase(1, "ADDRESSES"));
+    }
+
+    @Test
+    void testTokenizeBytes_MatchesCharTokenizing() {
+        String line = " 7 ,\"12 Main St, Apt \"\"B\"\"\",9gZ+UkL+QIBas/k3OA74LQ==,,x\"y";
+        byte[] data = ("##" + line + "##").getBytes(StandardCharsets.UTF_8);
+
+        String[] expected = tokenizeChars(line);
+        tokenizer.tokenize(data, 2, data.length - 2, DelimiterScanner.create(true));
+
+        assertArrayEquals(expected, tokenizer.toArray());
+        assertEquals(7L, tokenizer.parseLong(0));
+        assertEquals("x\"y", tokenizer.trimmedString(4));
+    }
+
+    @Test
+    void testTokenizeBytes_DecodesUtf8() {
+        byte[] data = "1,Stra\u00dfe 5".getBytes(StandardCharsets.UTF_8);
+        tokenizer.tokenize(data, 0, data.length, DelimiterScanner.create(false));
+        assertEquals("Stra\u00dfe 5", tokenizer.trimmedString(1));
+    }
+
+    @Test
+    void testTokenizeBytes_UnterminatedQuote() {
+        byte[] data = "1,\"open".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IllegalArgumentException.class,
+                () -> tokenizer.tokenize(data, 0, data.length, DelimiterScanner.create(false)));
+    }
+
+    private String[] tokenizeChars(String line) {
+        CsvTokenizer charTokenizer = new CsvTokenizer();
+        charTokenizer.tokenize(line);
+        return charTokenizer.toArray();
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.csv_json_project.servicesTest;
+
+import com.example.csv_json_project.services.CsvWorkerPool;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CsvWorkerPoolTest {
+
+    private CsvWorkerPool startPool(String mode, int maxWorkers) {
+        CsvWorkerPool pool = new CsvWorkerPool();
+        ReflectionTestUtils.setField(pool, "mode", mode);
+        ReflectionTestUtils.setField(pool, "configuredMaxWorkers", maxWorkers);
+        pool.start();
+        return pool;
+    }
+
+    @Test
+    void testPlatformMode_BoundsConcurrencyAndAwaitsCompletion() {
+        assertBoundedAndComplete(startPool(CsvWorkerPool.MODE_PLATFORM, 2), 2);
+    }
+
+    @Test
+    void testVirtualMode_BoundsConcurrencyAndAwaitsCompletion() {
+        assertBoundedAndComplete(startPool(CsvWorkerPool.MODE_VIRTUAL, 3), 3);
+    }
+
+    @Test
+    void testForkJoinMode_BoundsConcurrencyAndAwaitsCompletion() {
+        CsvWorkerPool pool = startPool(CsvWorkerPool.MODE_FORK_JOIN, 2);
+        assertTrue(pool.isForkJoin());
+        assertBoundedAndComplete(pool, 2);
+    }
+
+    @Test
+    void testFailingTaskDoesNotBlockCompletionAndIsRethrown() {
+        CsvWorkerPool pool = startPool(CsvWorkerPool.MODE_PLATFORM, 1);
+        try {
+            AtomicInteger completed = new AtomicInteger();
+            CsvWorkerPool.TaskGroup tasks = pool.newTaskGroup(2);
+            tasks.execute(() -> {
+                throw new IllegalStateException("boom");
+            });
+            tasks.execute(completed::incrementAndGet);
+            // The failure is rethrown once every task is done
+            IllegalStateException failure = assertThrows(IllegalStateException.class, tasks::awaitCompletion);
+
+            assertEquals("boom", failure.getMessage());
+            assertEquals(1, completed.get());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testUnknownMode() {
+        assertThrows(IllegalStateException.class, () -> startPool("fibers", 1));
+    }
+
+    private void assertBoundedAndComplete(CsvWorkerPool pool, int maxWorkers) {
+        try {
+            assertEquals(maxWorkers, pool.maxWorkers());
+            AtomicInteger running = new AtomicInteger();
+            AtomicInteger maxRunning = new AtomicInteger();
+            AtomicInteger completed = new AtomicInteger();
+
+            CsvWorkerPool.TaskGroup tasks = pool.newTaskGroup(maxWorkers * 2);
+            for (int i = 0; i < 50; i++) {
+                tasks.execute(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        Thread.sleep(2);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    running.decrementAndGet();
+                    completed.incrementAndGet();
+                });
+            }
+            tasks.awaitCompletion();
+
+            assertEquals(50, completed.get());
+            assertTrue(maxRunning.get() <= maxWorkers);
+            if (!pool.isForkJoin()) {
+                assertFalse(tasks.utilization().busyRatios().isEmpty());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.csv_json_project.servicesTest;
+
+import com.example.csv_json_project.model.Customer;
+import com.example.csv_json_project.services.CustomerIndex;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CustomerIndexTest {
+
+    @Test
+    void testPutAndGet() {
+        CustomerIndex index = new CustomerIndex();
+        Customer customer = new Customer();
+
+        index.put(42L, customer);
+
+        assertSame(customer, index.get(42L));
+        assertNull(index.get(43L));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testPut_ReplacesExistingId() {
+        CustomerIndex index = new CustomerIndex();
+        Customer replacement = new Customer();
+
+        index.put(1L, new Customer());
+        index.put(1L, replacement);
+
+        assertSame(replacement, index.get(1L));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void testGrowsBeyondInitialCapacity() {
+        CustomerIndex index = new CustomerIndex(4);
+        Customer[] customers = new Customer[10_000];
+        for (int i = 0; i < customers.length; i++) {
+            customers[i] = new Customer();
+            index.put(i - 5_000L, customers[i]); // Include negative and zero ids
+        }
+
+        assertEquals(customers.length, index.size());
+        for (int i = 0; i < customers.length; i++) {
+            assertSame(customers[i], index.get(i - 5_000L));
+        }
+        assertNull(index.get(Long.MAX_VALUE));
+    }
+
+    @Test
+    void testPut_RejectsNullCustomer() {
+        assertThrows(IllegalArgumentException.class, () -> new CustomerIndex().put(1L, null));
+    }
+}
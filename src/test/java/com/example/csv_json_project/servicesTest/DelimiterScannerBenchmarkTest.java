@@ -0,0 +1,76 @@
+package com.example.csv_json_project.servicesTest;
+
+import com.example.csv_json_project.services.CsvTokenizer;
+import com.example.csv_json_project.services.DelimiterScanner;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Rows/sec of byte-mode tokenizing on wide rows with long Base64 columns, scalar vs vectorized.
+// Run with: mvn test -Pbenchmark
+@Tag("benchmark")
+class DelimiterScannerBenchmarkTest {
+
+    private static final int ROWS = 20_000;
+    private static final int ROUNDS = 10;
+
+    @Test
+    void benchmarkWideEncryptedRows() {
+        byte[] data = buildWideRows();
+        DelimiterScanner scalar = DelimiterScanner.create(false);
+        DelimiterScanner preferred = DelimiterScanner.create(true);
+
+        // Warm up both paths before measuring
+        tokenizeAll(data, scalar);
+        tokenizeAll(data, preferred);
+
+        double scalarRowsPerSec = measure(data, scalar);
+        double preferredRowsPerSec = measure(data, preferred);
+
+        System.out.printf("scalar: %.0f rows/sec, %s: %.0f rows/sec (%.2fx)%n",
+                scalarRowsPerSec, preferred.name(), preferredRowsPerSec, preferredRowsPerSec / scalarRowsPerSec);
+        assertTrue(scalarRowsPerSec > 0 && preferredRowsPerSec > 0);
+    }
+
+    private double measure(byte[] data, DelimiterScanner scanner) {
+        long start = System.nanoTime();
+        long rows = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            rows += tokenizeAll(data, scanner);
+        }
+        return rows / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private int tokenizeAll(byte[] data, DelimiterScanner scanner) {
+        CsvTokenizer tokenizer = new CsvTokenizer();
+        int rows = 0;
+        int start = 0;
+        while (start < data.length) {
+            int end = scanner.nextNewline(data, start, data.length);
+            tokenizer.tokenize(data, start, end, scanner);
+            rows++;
+            start = end + 1;
+        }
+        return rows;
+    }
+
+    private byte[] buildWideRows() {
+        Random random = new Random(7);
+        StringBuilder rows = new StringBuilder();
+        for (int row = 0; row < ROWS; row++) {
+            rows.append(row);
+            for (int column = 0; column < 8; column++) {
+                byte[] cipher = new byte[16 * (1 + random.nextInt(8))];
+                random.nextBytes(cipher);
+                rows.append(',').append(Base64.getEncoder().encodeToString(cipher));
+            }
+            rows.append(",2023-01-01\n");
+        }
+        return rows.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.csv_json_project.servicesTest;
+
+import com.example.csv_json_project.services.DelimiterScanner;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DelimiterScannerTest {
+
+    private final DelimiterScanner scalar = DelimiterScanner.create(false);
+    private final DelimiterScanner preferred = DelimiterScanner.create(true);
+
+    @Test
+    void testCreate_FallsBackToScalarWhenSimdDisabled() {
+        assertEquals("scalar", scalar.name());
+    }
+
+    @Test
+    void testNextDelimiter_FindsCommaAndQuote() {
+        byte[] data = "abcdefghijklmnopqrstuvwxyz0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZ,\"x".getBytes(StandardCharsets.US_ASCII);
+        for (DelimiterScanner scanner : new DelimiterScanner[]{scalar, preferred}) {
+            assertEquals(62, scanner.nextDelimiter(data, 0, data.length));
+            assertEquals(63, scanner.nextDelimiter(data, 63, data.length));
+            assertEquals(data.length, scanner.nextDelimiter(data, 64, data.length));
+            assertEquals(10, scanner.nextDelimiter(data, 3, 10));
+        }
+    }
+
+    @Test
+    void testScannersAgreeOnRandomInput() {
+        Random random = new Random(42);
+        byte[] alphabet = "ab=+/9,\"\n".getBytes(StandardCharsets.US_ASCII);
+        byte[] data = new byte[4096];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = alphabet[random.nextInt(alphabet.length)];
+        }
+
+        for (int from = 0; from < 300; from++) {
+            int to = data.length - from;
+            assertEquals(scalar.nextDelimiter(data, from, to), preferred.nextDelimiter(data, from, to));
+            assertEquals(scalar.nextNewline(data, from, to), preferred.nextNewline(data, from, to));
+        }
+    }
+}
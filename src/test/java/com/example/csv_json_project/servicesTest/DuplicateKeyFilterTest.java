@@ -0,0 +1,103 @@
+package com.example.csv_json_project.servicesTest;
+
+import com.example.csv_json_project.services.DuplicateKeyFilter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DuplicateKeyFilterTest {
+
+    @Test
+    void testAdd_RejectsDuplicates() {
+        DuplicateKeyFilter<String> filter = new DuplicateKeyFilter<>(1_000, 0.01, key -> false);
+
+        assertTrue(filter.add("1234567890123456789012"));
+        assertTrue(filter.add("ACC1"));
+        assertFalse(filter.add("1234567890123456789012"));
+        assertFalse(filter.add("ACC1"));
+        assertEquals(2, filter.size());
+        assertEquals(2, filter.duplicates());
+    }
+
+    @Test
+    void testAdd_StoredKeysAreLookedUpOnlyOnFilterHits() {
+        Set<Long> table = new HashSet<>();
+        for (long key = 1; key <= 1_000; key++) {
+            table.add(key * 7919);
+        }
+        AtomicInteger lookups = new AtomicInteger();
+        DuplicateKeyFilter<Long> filter = new DuplicateKeyFilter<>(2_000, 0.01, key -> {
+            lookups.incrementAndGet();
+            return table.contains(key);
+        });
+        table.forEach(filter::seed);
+
+        for (long key = 1; key <= 1_000; key++) {
+            assertFalse(filter.add(key * 7919));
+        }
+        assertEquals(1_000, lookups.get());
+        // Stored keys keep no entry, only filter bits
+        assertEquals(0, filter.size());
+
+        lookups.set(0);
+        for (long key = 1; key <= 1_000; key++) {
+            assertTrue(filter.add(key * 7919 + 1));
+        }
+        // Only false positives of the filter reach the table
+        assertTrue(lookups.get() < 100, "lookups " + lookups.get());
+    }
+
+    @Test
+    void testRemoveAndSaved() {
+        Set<Long> table = new HashSet<>();
+        DuplicateKeyFilter<Long> filter = new DuplicateKeyFilter<>(1_000, 0.01, table::contains);
+        assertTrue(filter.add(1L));
+        assertTrue(filter.add(2L));
+
+        // Row 1 could not be saved: its key is free again
+        filter.remove(1L);
+        assertTrue(filter.add(1L));
+
+        // Row 2 is stored: the table answers for its key from now on
+        table.add(2L);
+        filter.saved(2L);
+        assertEquals(1, filter.size());
+        assertFalse(filter.add(2L));
+    }
+
+    @Test
+    void testAdd_ConcurrentAddsOfOneKeyHaveOneWinner() throws Exception {
+        DuplicateKeyFilter<Long> filter = new DuplicateKeyFilter<>(10_000, 0.01, key -> false);
+        AtomicInteger wins = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                results.add(executor.submit(() -> {
+                    for (long key = 0; key < 10_000; key++) {
+                        if (filter.add(key)) {
+                            wins.incrementAndGet();
+                        }
+                    }
+                }));
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(10_000, wins.get());
+        assertEquals(7 * 10_000, filter.duplicates());
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.csv_json_project.servicesTest;
+
+import com.example.csv_json_project.model.Account;
+import com.example.csv_json_project.model.Customer;
+import com.example.csv_json_project.repositories.AccountRepository;
+import com.example.csv_json_project.repositories.CustomerRepository;
+import com.example.csv_json_project.services.H2BulkLoader;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@SpringBootTest
+class H2BulkLoaderTest {
+
+    @Autowired
+    private H2BulkLoader h2BulkLoader;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private AccountRepository accountRepository;
+
+    private static Customer customer(long id) {
+        Customer customer = new Customer();
+        customer.setCustomer_Id(id);
+        customer.setName("John");
+        customer.setSurname("Doe \"Jr\", III");
+        customer.setAddress("123 Main St");
+        customer.setNationalId("1234567890");
+        customer.setBirthDate(Date.valueOf("1996-01-01"));
+        return customer;
+    }
+
+    @Test
+    void testPersistCustomers_LoadsEveryRow() {
+        List<Customer> customers = new ArrayList<>();
+        for (long id = 9301; id <= 9310; id++) {
+            customers.add(customer(id));
+        }
+        Map<Integer, RuntimeException> failures = new HashMap<>();
+
+        h2BulkLoader.persistCustomers(customers, failures::put);
+
+        assertTrue(failures.isEmpty());
+        Customer loaded = customerRepository.findById(9305L).orElseThrow();
+        assertEquals("John", loaded.getName());
+        assertEquals("Doe \"Jr\", III", loaded.getSurname());
+        assertEquals("1996-01-01", loaded.getBirthDate().toString());
+        assertNull(loaded.getZipCode());
+        assertTrue(customerRepository.existsById(9310L));
+        assertTrue(h2BulkLoader.rows() >= 10);
+    }
+
+    @Test
+    void testPersistCustomers_ReportsDuplicatesAndLoadsTheRest() {
+        customerRepository.save(customer(9401));
+        List<Customer> customers = List.of(customer(9400), customer(9401), customer(9402), customer(9402));
+        Map<Integer, RuntimeException> failures = new HashMap<>();
+
+        h2BulkLoader.persistCustomers(customers, failures::put);
+
+        // The existing id and the second copy of 9402 are duplicates
+        assertEquals(Set.of(1, 3), failures.keySet());
+        assertInstanceOf(DataIntegrityViolationException.class, failures.get(1));
+        assertTrue(customerRepository.existsById(9400L));
+        assertTrue(customerRepository.existsById(9402L));
+    }
+
+    @Test
+    void testPersistCustomers_FallsBackWhenTheStagingFileCannotBeWritten() throws IOException {
+        // A regular file where the staging directory should be
+        Path notADirectory = Files.createTempFile("staging", ".txt");
+        long fallbacks = h2BulkLoader.fallbacks();
+        ReflectionTestUtils.setField(h2BulkLoader, "stagingDir", notADirectory.resolve("spool").toString());
+        try {
+            Map<Integer, RuntimeException> failures = new HashMap<>();
+
+            h2BulkLoader.persistCustomers(List.of(customer(9600), customer(9601)), failures::put);
+
+            assertTrue(failures.isEmpty());
+            assertTrue(customerRepository.existsById(9600L));
+            assertTrue(customerRepository.existsById(9601L));
+            assertEquals(fallbacks + 1, h2BulkLoader.fallbacks());
+        } finally {
+            ReflectionTestUtils.setField(h2BulkLoader, "stagingDir", "");
+            Files.delete(notADirectory);
+        }
+    }
+
+    @Test
+    void testPersistAccounts_LinksTheirCustomer() {
+        Customer customer = customerRepository.save(customer(9500));
+        Account account = new Account("ACC9500", 2, 5000.0, Date.valueOf("2023-01-01"), 2500.5, customer);
+        account.setEncryptedBalance("ciphertext");
+        Map<Integer, RuntimeException> failures = new HashMap<>();
+
+        h2BulkLoader.persistAccounts(List.of(account), failures::put);
+
+        assertTrue(failures.isEmpty());
+        Account loaded = accountRepository.findById("ACC9500").orElseThrow();
+        assertEquals(2, loaded.getAccountType());
+        assertEquals(2500.5, loaded.getBalance());
+        assertEquals("ciphertext", loaded.getEncryptedBalance());
+        assertEquals(9500L, loaded.getCustomer().getCustomer_Id());
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.csv_json_project.servicesTest;
+
+import com.example.csv_json_project.services.CsvJob;
+import com.example.csv_json_project.services.CsvJobService;
+import com.example.csv_json_project.services.CsvProcessorService;
+import com.example.csv_json_project.services.JobEventPublisher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class JobEventPublisherTest {
+
+    private CsvProcessorService csvProcessorService;
+    private CsvJobService csvJobService;
+    private JobEventPublisher jobEventPublisher;
+
+    @BeforeEach
+    void setUp() {
+        csvProcessorService = mock(CsvProcessorService.class);
+        when(csvProcessorService.newJob()).thenReturn(new CsvJob("job-1", Path.of("Errors-job-1.json")));
+        csvJobService = new CsvJobService();
+        ReflectionTestUtils.setField(csvJobService, "csvProcessorService", csvProcessorService);
+        ReflectionTestUtils.setField(csvJobService, "maxConcurrent", 1);
+        ReflectionTestUtils.setField(csvJobService, "retained", 10);
+        csvJobService.start();
+
+        jobEventPublisher = new JobEventPublisher();
+        ReflectionTestUtils.setField(jobEventPublisher, "intervalMillis", 20L);
+        jobEventPublisher.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobEventPublisher.shutdown();
+        csvJobService.shutdown();
+    }
+
+    @Test
+    void testSubscriberStaysUntilJobFinishes() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await();
+            return null;
+        }).when(csvProcessorService).processCsvFiles(anyString(), anyString(), any(CsvJob.class));
+
+        CsvJob job = csvJobService.submit(Files.createTempFile("account", ".csv"), Files.createTempFile("customer", ".csv"));
+        jobEventPublisher.subscribe(job);
+
+        // Several intervals pass while the job runs
+        Thread.sleep(100);
+        assertEquals(1, jobEventPublisher.subscriberCount());
+
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (jobEventPublisher.subscriberCount() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(job.isFinished());
+        assertEquals(0, jobEventPublisher.subscriberCount());
+    }
+
+    @Test
+    void testShutdownCompletesSubscribers() {
+        jobEventPublisher.subscribe(new CsvJob("job-2", Path.of("Errors-job-2.json")));
+        assertEquals(1, jobEventPublisher.subscriberCount());
+
+        jobEventPublisher.shutdown();
+
+        assertEquals(0, jobEventPublisher.subscriberCount());
+    }
+}
@@ -0,0 +1,165 @@
+package com.example.csv_json_project.servicesTest;
+
+import com.example.csv_json_project.services.DelimiterScanner;
+import com.example.csv_json_project.services.MappedCsvSplitter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MappedCsvSplitterTest {
+
+    private Path tempFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        tempFile = Files.createTempFile("mapped", ".csv");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(tempFile);
+    }
+
+    @Test
+    void testSplit_RangesAreLineAlignedAndCoverTheFile() throws IOException {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            content.append("line-").append(i).append(",value\r\n");
+        }
+        Files.writeString(tempFile, content.toString());
+
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.READ)) {
+            List<MappedCsvSplitter.ByteRange> ranges = MappedCsvSplitter.split(channel, 7);
+
+            assertFalse(ranges.isEmpty());
+            assertEquals(0, ranges.get(0).start());
+            assertEquals(channel.size(), ranges.get(ranges.size() - 1).end());
+
+            List<String> lines = new ArrayList<>();
+            for (int i = 0; i < ranges.size(); i++) {
+                if (i > 0) {
+                    assertEquals(ranges.get(i - 1).end(), ranges.get(i).start());
+                }
+                lines.addAll(readLines(channel, ranges.get(i)));
+            }
+
+            assertEquals(100, lines.size());
+            for (int i = 0; i < 100; i++) {
+                assertEquals("line-" + i + ",value", lines.get(i));
+            }
+        }
+    }
+
+    @Test
+    void testSplit_QuotedNewlinesStayInsideOneRecord() throws IOException {
+        // Every record carries a quoted field with embedded newlines and an escaped quote, so most
+        // split targets land between a quoted field's opening and closing quote
+        List<String> records = new ArrayList<>();
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            String record = i + ",\"first\nsecond \"\"" + i + "\"\"\r\nthird\n\",end";
+            records.add(record);
+            content.append(record).append('\n');
+        }
+        Files.writeString(tempFile, content.toString());
+
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.READ)) {
+            List<MappedCsvSplitter.ByteRange> ranges = MappedCsvSplitter.split(channel, 37);
+            assertTrue(ranges.size() > 1);
+
+            List<String> lines = new ArrayList<>();
+            for (MappedCsvSplitter.ByteRange range : ranges) {
+                lines.addAll(readLines(channel, range));
+            }
+            assertEquals(records, lines);
+
+            MappedCsvSplitter.ByteRange whole = new MappedCsvSplitter.ByteRange(0, channel.size());
+            long middle = MappedCsvSplitter.lineAlignedMiddle(channel, whole);
+            List<String> halves = new ArrayList<>(readLines(channel, new MappedCsvSplitter.ByteRange(0, middle)));
+            halves.addAll(readLines(channel, new MappedCsvSplitter.ByteRange(middle, channel.size())));
+            assertEquals(records, halves);
+        }
+    }
+
+    @Test
+    void testSplit_StrayAndUnterminatedQuotesOnlyFailTheirOwnLine() throws IOException {
+        List<String> records = new ArrayList<>();
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 2_000; i++) {
+            String record = i == 700 ? i + ",\"unterminated,x"
+                    : i % 3 == 0 ? i + ",O\"Brien,x"
+                    : i % 3 == 1 ? i + ",\"a\nb\",x"
+                    : i + ",plain,x";
+            records.add(record);
+            content.append(record).append('\n');
+        }
+        Files.writeString(tempFile, content.toString());
+
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.READ)) {
+            List<String> lines = new ArrayList<>();
+            for (MappedCsvSplitter.ByteRange range : MappedCsvSplitter.split(channel, 9)) {
+                lines.addAll(readLines(channel, range));
+            }
+            assertEquals(records, lines);
+        }
+    }
+
+    @Test
+    void testSplit_EmptyFile() throws IOException {
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.READ)) {
+            assertTrue(MappedCsvSplitter.split(channel, 4).isEmpty());
+        }
+    }
+
+    @Test
+    void testSplit_LastLineWithoutNewline() throws IOException {
+        Files.writeString(tempFile, "a,1\nb,2");
+
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.READ)) {
+            List<String> lines = new ArrayList<>();
+            for (MappedCsvSplitter.ByteRange range : MappedCsvSplitter.split(channel, 2)) {
+                lines.addAll(readLines(channel, range));
+            }
+            assertEquals(List.of("a,1", "b,2"), lines);
+        }
+    }
+
+    @Test
+    void testFirstLine_SplitSkipsHeader() throws IOException {
+        Files.writeString(tempFile, "ID,NAME\r\n1,a\n2,b\n");
+
+        try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.READ)) {
+            MappedCsvSplitter.FirstLine header = MappedCsvSplitter.firstLine(channel);
+            assertEquals("ID,NAME", new String(header.bytes(), StandardCharsets.UTF_8));
+            assertEquals(9, header.nextLineStart());
+
+            List<String> lines = new ArrayList<>();
+            for (MappedCsvSplitter.ByteRange range : MappedCsvSplitter.split(channel, 2, header.nextLineStart())) {
+                lines.addAll(readLines(channel, range));
+            }
+            assertEquals(List.of("1,a", "2,b"), lines);
+        }
+    }
+
+    private List<String> readLines(FileChannel channel, MappedCsvSplitter.ByteRange range) throws IOException {
+        MappedByteBuffer buffer = MappedCsvSplitter.map(channel, range);
+        MappedCsvSplitter.LineCursor cursor = new MappedCsvSplitter.LineCursor(buffer, DelimiterScanner.create(true));
+        List<String> lines = new ArrayList<>();
+        while (cursor.next()) {
+            lines.add(new String(cursor.data(), cursor.lineStart(), cursor.lineEnd() - cursor.lineStart(), StandardCharsets.UTF_8));
+        }
+        return lines;
+    }
+}
@@ -0,0 +1,77 @@
+package com.example.csv_json_project.servicesTest;
+
+import com.example.csv_json_project.model.Customer;
+import com.example.csv_json_project.services.BatchPersister;
+import com.example.csv_json_project.services.H2BulkLoader;
+import com.example.csv_json_project.services.RowPersistenceEngine;
+import com.example.csv_json_project.springSecurity.EncryptedField;
+import com.example.csv_json_project.springSecurity.EncryptionUtil;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Rows/sec of saving validated customers with the JPA batch engine vs the H2 bulk loader.
+// Run with: mvn test -Pbenchmark
+@Tag("benchmark")
+@SpringBootTest
+class PersistenceEngineBenchmarkTest {
+
+    private static final int ROWS = 50_000;
+
+    @Autowired
+    private BatchPersister batchPersister;
+
+    @Autowired
+    private H2BulkLoader h2BulkLoader;
+
+    @Test
+    void benchmarkPersistenceEngines() {
+        // Ciphertext is computed once up front, both engines store it as is
+        EncryptedField name = EncryptedField.ofCiphertext(EncryptionUtil.encrypt("John"));
+        EncryptedField surname = EncryptedField.ofCiphertext(EncryptionUtil.encrypt("Doe"));
+
+        // Warm up both engines on a few rows before measuring
+        measure(batchPersister, customers(10_000_000L, 1_000, name, surname));
+        measure(h2BulkLoader, customers(11_000_000L, 1_000, name, surname));
+
+        double jpaRowsPerSec = measure(batchPersister, customers(20_000_000L, ROWS, name, surname));
+        double bulkRowsPerSec = measure(h2BulkLoader, customers(30_000_000L, ROWS, name, surname));
+
+        System.out.printf("%s: %.0f rows/sec, %s: %.0f rows/sec (%.2fx)%n", batchPersister.name(), jpaRowsPerSec,
+                h2BulkLoader.name(), bulkRowsPerSec, bulkRowsPerSec / jpaRowsPerSec);
+        assertTrue(jpaRowsPerSec > 0 && bulkRowsPerSec > 0);
+    }
+
+    private double measure(RowPersistenceEngine engine, List<Customer> customers) {
+        AtomicInteger failures = new AtomicInteger();
+        long start = System.nanoTime();
+        engine.persistCustomers(customers, (index, e) -> failures.incrementAndGet());
+        double rowsPerSec = customers.size() / ((System.nanoTime() - start) / 1e9);
+        assertEquals(0, failures.get());
+        return rowsPerSec;
+    }
+
+    private List<Customer> customers(long firstId, int count, EncryptedField name, EncryptedField surname) {
+        List<Customer> customers = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Customer customer = new Customer();
+            customer.setCustomer_Id(firstId + i);
+            customer.setEncryptedName(name);
+            customer.setEncryptedSurname(surname);
+            customer.setAddress(i + " Main St");
+            customer.setZipCode("12345");
+            customer.setNationalId("1234567890");
+            customer.setBirthDate(Date.valueOf("1996-01-01"));
+            customers.add(customer);
+        }
+        return customers;
+    }
+}
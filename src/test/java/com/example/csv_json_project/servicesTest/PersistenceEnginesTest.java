@@ -0,0 +1,58 @@
+package com.example.csv_json_project.servicesTest;
+
+import com.example.csv_json_project.services.CsvJob;
+import com.example.csv_json_project.services.PersistenceEngines;
+import com.example.csv_json_project.services.RowPersistenceEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PersistenceEnginesTest {
+
+    private RowPersistenceEngine jpaBatch;
+    private RowPersistenceEngine h2Bulk;
+    private PersistenceEngines engines;
+
+    @BeforeEach
+    void setUp() {
+        jpaBatch = mock(RowPersistenceEngine.class);
+        when(jpaBatch.name()).thenReturn("jpa-batch");
+        h2Bulk = mock(RowPersistenceEngine.class);
+        when(h2Bulk.name()).thenReturn("h2-bulk");
+
+        engines = new PersistenceEngines();
+        ReflectionTestUtils.setField(engines, "engines", List.of(jpaBatch, h2Bulk));
+        ReflectionTestUtils.setField(engines, "defaultEngine", "jpa-batch");
+        engines.start();
+    }
+
+    @Test
+    void testResolve() {
+        assertSame(jpaBatch, engines.resolve(null));
+        assertSame(h2Bulk, engines.resolve("h2-bulk"));
+        assertNull(engines.resolve("row"));
+        assertSame(jpaBatch, engines.forJob(new CsvJob("job-1", Path.of("Errors-job-1.json"))));
+    }
+
+    @Test
+    void testResolve_UnknownEngine() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> engines.resolve("fast"));
+        assertTrue(e.getMessage().startsWith("Unknown persistence engine: fast"));
+    }
+
+    @Test
+    void testStart_RejectsUnknownDefault() {
+        PersistenceEngines misconfigured = new PersistenceEngines();
+        ReflectionTestUtils.setField(misconfigured, "engines", List.of(jpaBatch));
+        ReflectionTestUtils.setField(misconfigured, "defaultEngine", "h2-bulk");
+
+        assertThrows(IllegalArgumentException.class, misconfigured::start);
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.csv_json_project.servicesTest;
+
+import com.example.csv_json_project.model.Customer;
+import com.example.csv_json_project.repositories.AccountRepository;
+import com.example.csv_json_project.repositories.CustomerRepository;
+import com.example.csv_json_project.services.CsvBatchReader;
+import com.example.csv_json_project.services.CsvProcessorTask;
+import com.example.csv_json_project.services.CsvWorkerPool;
+import com.example.csv_json_project.services.ErrorCollector;
+import com.example.csv_json_project.services.StagedCsvPipeline;
+import com.example.csv_json_project.springSecurity.EncryptionUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class StagedCsvPipelineTest {
+
+    private CustomerRepository customerRepository;
+    private ErrorCollector sharedErrors;
+    private CsvProcessorTask rows;
+    private CsvWorkerPool workerPool;
+
+    @BeforeEach
+    void setUp() {
+        customerRepository = mock(CustomerRepository.class);
+        sharedErrors = new ErrorCollector();
+        rows = new CsvProcessorTask(Collections.emptyList(), Collections.emptyList(),
+                new CsvProcessorTask.Context(mock(AccountRepository.class), customerRepository, sharedErrors));
+        // Fewer pool threads than stage workers: stages share the pool and must not wait on each other
+        workerPool = new CsvWorkerPool();
+        ReflectionTestUtils.setField(workerPool, "mode", CsvWorkerPool.MODE_PLATFORM);
+        ReflectionTestUtils.setField(workerPool, "configuredMaxWorkers", 2);
+        workerPool.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        workerPool.shutdown();
+    }
+
+    private String customerLine(long id, String birthDate) {
+        return id + ",123 Main St," + birthDate + "," + EncryptionUtil.encrypt("John") + ","
+                + EncryptionUtil.encrypt("1234567890") + "," + EncryptionUtil.encrypt("Doe") + ",12345";
+    }
+
+    @Test
+    void testRun_EveryRowPassesThroughAllStages() throws IOException {
+        StringBuilder csv = new StringBuilder();
+        for (long id = 1; id <= 500; id++) {
+            csv.append(customerLine(id, "1996-01-01")).append('\n');
+        }
+
+        StagedCsvPipeline pipeline = new StagedCsvPipeline(rows, workerPool, false, 3, 2, 2, 2);
+        CsvBatchReader reader = new CsvBatchReader(new StringReader(csv.toString()), 16);
+        pipeline.run(reader.nextBatch(), reader);
+
+        verify(customerRepository, times(500)).save(any(Customer.class));
+        assertTrue(sharedErrors.isEmpty());
+        assertEquals(Map.of("decrypt", 0, "validate", 0, "persist", 0), pipeline.queueDepths());
+        assertTrue(pipeline.peakQueueDepths().get("decrypt") <= 2);
+    }
+
+    @Test
+    void testRun_ErrorsAreClassifiedPerStage() throws IOException {
+        doThrow(DataIntegrityViolationException.class).when(customerRepository)
+                .save(argThat(customer -> customer.getCustomer_Id() == 3L));
+        String csv = String.join("\n",
+                customerLine(1, "1996-01-01"),
+                customerLine(2, "1990-01-01"),   // Born before 1995: validation error
+                customerLine(3, "1996-01-01"),   // Duplicate: integrity error
+                "4,\"unterminated",              // Malformed line; the rows after it are still read
+                "not-a-number,123 Main St,1996-01-01,a,b,c,12345",
+                customerLine(5, "1996-01-01"));
+
+        StagedCsvPipeline pipeline = new StagedCsvPipeline(rows, workerPool, false, 2, 1, 1, 1);
+        CsvBatchReader reader = new CsvBatchReader(new StringReader(csv), 2);
+        pipeline.run(reader.nextBatch(), reader);
+
+        List<String> codes = sharedErrors.toList().stream().map(error -> error.get("error_code")).sorted().toList();
+        assertEquals(List.of("400", "409", "500", "500"), codes);
+        verify(customerRepository).save(argThat(customer -> customer.getCustomer_Id() == 5L));
+    }
+}
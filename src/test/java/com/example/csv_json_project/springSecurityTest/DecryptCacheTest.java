@@ -0,0 +1,87 @@
+package com.example.csv_json_project.springSecurityTest;
+
+import com.example.csv_json_project.springSecurity.DecryptCache;
+import com.example.csv_json_project.springSecurity.DecryptionBatch;
+import com.example.csv_json_project.springSecurity.EncryptionUtil;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecryptCacheTest {
+
+    private DecryptCache createCache(int maxEntries, String columns) {
+        DecryptCache cache = new DecryptCache();
+        ReflectionTestUtils.setField(cache, "maxEntries", maxEntries);
+        ReflectionTestUtils.setField(cache, "columns", columns);
+        cache.start();
+        return cache;
+    }
+
+    @Test
+    void testEnabledColumns() {
+        DecryptCache cache = createCache(100, "name, Surname");
+
+        assertTrue(cache.isEnabledFor("NAME"));
+        assertTrue(cache.isEnabledFor("surname"));
+        assertFalse(cache.isEnabledFor("NATIONAL_ID"));
+        // No entries means no cache, whatever the columns
+        assertFalse(createCache(0, "NAME").isEnabledFor("NAME"));
+    }
+
+    @Test
+    void testLookupBySequenceContent() {
+        DecryptCache cache = createCache(100, "NAME");
+        cache.put("abc=", "John");
+
+        assertEquals("John", cache.get(new StringBuilder("abc=")));
+        assertNull(cache.get("abd="));
+        assertEquals(1, cache.hits());
+        assertEquals(1, cache.misses());
+    }
+
+    @Test
+    void testEvictsLeastRecentlyUsed() {
+        // 10 entries in each of the 16 segments
+        DecryptCache cache = createCache(160, "NAME");
+        String first = null;
+        for (int i = 0; i < 1000; i++) {
+            String ciphertext = "value-" + i;
+            if (first == null) {
+                first = ciphertext;
+            }
+            cache.put(ciphertext, "plain-" + i);
+            cache.get(first); // Keeps the first entry recently used
+        }
+
+        assertTrue(cache.size() <= 160);
+        assertEquals("plain-0", cache.get(first));
+    }
+
+    @Test
+    void testBatchResolvesRepeatedCiphertextFromCache() {
+        DecryptCache cache = createCache(100, "SURNAME");
+        String doe = EncryptionUtil.encrypt("Doe");
+        DecryptionBatch batch = new DecryptionBatch();
+
+        batch.add(doe, cache);
+        batch.add("not encrypted", cache);
+        EncryptionUtil.decryptBatch(batch);
+        String firstPlaintext = batch.toString(0);
+        assertEquals("Doe", firstPlaintext);
+        assertFalse(batch.isDecrypted(1));
+
+        batch.clear();
+        batch.add(doe, cache);
+        batch.add(EncryptionUtil.encrypt("Smith"));
+        EncryptionUtil.decryptBatch(batch);
+
+        // The second row reuses the cached String and leaves the uncached field alone
+        assertSame(firstPlaintext, batch.toString(0));
+        assertFalse(batch.isBlank(0));
+        assertEquals("Smith", batch.toString(1));
+        assertEquals(1, cache.hits());
+        assertEquals(2, cache.misses());
+        assertEquals(1, cache.size()); // Failed decryptions are not cached
+    }
+}
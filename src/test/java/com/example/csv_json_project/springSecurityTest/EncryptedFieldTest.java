@@ -0,0 +1,71 @@
+package com.example.csv_json_project.springSecurityTest;
+
+import com.example.csv_json_project.springSecurity.EncryptedField;
+import com.example.csv_json_project.springSecurity.EncryptedFieldConverter;
+import com.example.csv_json_project.springSecurity.EncryptionUtil;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EncryptedFieldTest {
+
+    @Test
+    void testDecryptsOnFirstAccess() {
+        String ciphertext = EncryptionUtil.encrypt("John");
+        EncryptedField field = EncryptedField.ofCiphertext(new StringBuilder(ciphertext));
+
+        assertFalse(field.isDecrypted());
+        assertEquals(ciphertext, field.ciphertext());
+        assertFalse(field.isDecrypted());
+
+        assertEquals("John", field.plaintext());
+        assertTrue(field.isDecrypted());
+    }
+
+    @Test
+    void testEncryptsPlaintextOnDemand() {
+        EncryptedField field = EncryptedField.ofPlaintext("Doe");
+
+        assertEquals("Doe", field.plaintext());
+        assertEquals(EncryptionUtil.encrypt("Doe"), field.ciphertext());
+    }
+
+    @Test
+    void testInvalidCiphertextDecryptsToNull() {
+        EncryptedField field = EncryptedField.ofCiphertext("not encrypted");
+
+        assertNull(field.plaintext());
+        assertEquals("not encrypted", field.ciphertext());
+    }
+
+    @Test
+    void testNullStaysNull() {
+        assertNull(EncryptedField.ofCiphertext(null));
+        assertNull(EncryptedField.ofPlaintext(null));
+        assertNull(EncryptedField.plaintextOf(null));
+    }
+
+    @Test
+    void testEqualsByCiphertext() {
+        EncryptedField fromCiphertext = EncryptedField.ofCiphertext(EncryptionUtil.encrypt("John"));
+        EncryptedField fromPlaintext = EncryptedField.ofPlaintext("John");
+
+        assertEquals(fromPlaintext, fromCiphertext);
+        assertEquals(fromPlaintext.hashCode(), fromCiphertext.hashCode());
+        assertNotEquals(EncryptedField.ofPlaintext("Jane"), fromCiphertext);
+        // Comparing and hashing leave the ciphertext encrypted
+        assertFalse(fromCiphertext.isDecrypted());
+    }
+
+    @Test
+    void testConverterStoresCiphertext() {
+        EncryptedFieldConverter converter = new EncryptedFieldConverter();
+        String ciphertext = EncryptionUtil.encrypt("John");
+
+        assertEquals(ciphertext, converter.convertToDatabaseColumn(EncryptedField.ofPlaintext("John")));
+        EncryptedField loaded = converter.convertToEntityAttribute(ciphertext);
+        assertFalse(loaded.isDecrypted());
+        assertEquals("John", loaded.plaintext());
+        assertNull(converter.convertToDatabaseColumn(null));
+    }
+}
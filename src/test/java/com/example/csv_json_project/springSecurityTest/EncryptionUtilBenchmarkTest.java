@@ -0,0 +1,165 @@
+package com.example.csv_json_project.springSecurityTest;
+
+import com.example.csv_json_project.springSecurity.DecryptionBatch;
+import com.example.csv_json_project.springSecurity.EncryptionUtil;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.UnaryOperator;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Decrypt cost per field on the ingest path: the former per-call Cipher.getInstance and key spec
+// construction vs EncryptionUtil's cached key material and per-thread Cipher, on one thread and
+// on as many worker threads as CPUs; and field-by-field decrypt vs the batch API, which decrypts
+// the encrypted columns of a row into reusable buffers, in time and bytes allocated per field.
+// Run with: mvn test -Pbenchmark
+@Tag("benchmark")
+class EncryptionUtilBenchmarkTest {
+
+    private static final int FIELDS = 50_000;
+    private static final int ROUNDS = 5;
+
+    @Test
+    void benchmarkDecryptPerField() throws Exception {
+        List<String> fields = buildEncryptedFields();
+
+        // Warm up both paths before measuring
+        decryptAll(fields, EncryptionUtilBenchmarkTest::decryptPerCall);
+        decryptAll(fields, EncryptionUtil::decrypt);
+
+        double perCallNanos = measure(fields, EncryptionUtilBenchmarkTest::decryptPerCall, 1);
+        double cachedNanos = measure(fields, EncryptionUtil::decrypt, 1);
+        System.out.printf("1 thread: per-call cipher %.0f ns/field, cached cipher %.0f ns/field (%.2fx)%n",
+                perCallNanos, cachedNanos, perCallNanos / cachedNanos);
+
+        int workers = Runtime.getRuntime().availableProcessors();
+        double perCallParallelNanos = measure(fields, EncryptionUtilBenchmarkTest::decryptPerCall, workers);
+        double cachedParallelNanos = measure(fields, EncryptionUtil::decrypt, workers);
+        System.out.printf("%d threads: per-call cipher %.0f ns/field, cached cipher %.0f ns/field (%.2fx)%n",
+                workers, perCallParallelNanos, cachedParallelNanos, perCallParallelNanos / cachedParallelNanos);
+
+        assertTrue(perCallNanos > 0 && cachedNanos > 0);
+    }
+
+    @Test
+    void benchmarkBatchDecryptPerField() {
+        List<String> fields = buildEncryptedFields();
+        DecryptionBatch batch = new DecryptionBatch();
+
+        // Warm up both paths before measuring
+        decryptAll(fields, EncryptionUtil::decrypt);
+        decryptRows(fields, batch);
+
+        long allocated = allocatedBytes();
+        long start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            decryptAll(fields, EncryptionUtil::decrypt);
+        }
+        double singleNanos = (System.nanoTime() - start) / (double) (ROUNDS * fields.size());
+        double singleBytes = (allocatedBytes() - allocated) / (double) (ROUNDS * fields.size());
+
+        allocated = allocatedBytes();
+        start = System.nanoTime();
+        for (int round = 0; round < ROUNDS; round++) {
+            decryptRows(fields, batch);
+        }
+        double batchNanos = (System.nanoTime() - start) / (double) (ROUNDS * fields.size());
+        double batchBytes = (allocatedBytes() - allocated) / (double) (ROUNDS * fields.size());
+
+        System.out.printf("field by field: %.0f ns, %.0f bytes allocated per field; batch: %.0f ns, %.0f bytes per field%n",
+                singleNanos, singleBytes, batchNanos, batchBytes);
+        assertTrue(singleNanos > 0 && batchNanos > 0);
+    }
+
+    // Decrypt the fields three at a time, like the NAME, SURNAME and NATIONAL_ID columns of a customer row
+    private static int decryptRows(List<String> fields, DecryptionBatch batch) {
+        int decrypted = 0;
+        for (int row = 0; row + 3 <= fields.size(); row += 3) {
+            batch.clear();
+            batch.add(fields.get(row));
+            batch.add(fields.get(row + 1));
+            batch.add(fields.get(row + 2));
+            EncryptionUtil.decryptBatch(batch);
+            for (int slot = 0; slot < 3; slot++) {
+                if (batch.isDecrypted(slot)) {
+                    decrypted++;
+                }
+            }
+        }
+        return decrypted;
+    }
+
+    // Bytes allocated by the calling thread so far, or 0 where the JVM does not report it
+    private static long allocatedBytes() {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads) {
+            return threads.getCurrentThreadAllocatedBytes();
+        }
+        return 0;
+    }
+
+    // Wall-clock nanoseconds per decrypted field with the fields spread over the given number of threads
+    private double measure(List<String> fields, UnaryOperator<String> decrypt, int threads) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            long start = System.nanoTime();
+            List<Future<?>> results = new ArrayList<>();
+            for (int round = 0; round < ROUNDS; round++) {
+                int slice = (fields.size() + threads - 1) / threads;
+                for (int from = 0; from < fields.size(); from += slice) {
+                    List<String> part = fields.subList(from, Math.min(fields.size(), from + slice));
+                    results.add(executor.submit(() -> decryptAll(part, decrypt)));
+                }
+            }
+            for (Future<?> result : results) {
+                result.get();
+            }
+            return (System.nanoTime() - start) / (double) (ROUNDS * fields.size());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static int decryptAll(List<String> fields, UnaryOperator<String> decrypt) {
+        int length = 0;
+        for (String field : fields) {
+            length += decrypt.apply(field).length();
+        }
+        return length;
+    }
+
+    // What EncryptionUtil.decrypt used to do for every field
+    private static String decryptPerCall(String encrypted) {
+        try {
+            IvParameterSpec iv = new IvParameterSpec("1234567812345678".getBytes(StandardCharsets.UTF_8));
+            SecretKeySpec skeySpec = new SecretKeySpec("1234567812345678".getBytes(StandardCharsets.UTF_8), "AES");
+
+            Cipher cipher = Cipher.getInstance("AES/CBC/PKCS5PADDING");
+            cipher.init(Cipher.DECRYPT_MODE, skeySpec, iv);
+
+            return new String(cipher.doFinal(Base64.getDecoder().decode(encrypted)));
+        } catch (Exception ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    // Names and surnames of typical length, as in the customer files
+    private List<String> buildEncryptedFields() {
+        List<String> fields = new ArrayList<>(FIELDS);
+        for (int i = 0; i < FIELDS; i++) {
+            fields.add(EncryptionUtil.encrypt("Customer name " + i));
+        }
+        return fields;
+    }
+}
@@ -1,9 +1,14 @@
 package com.example.csv_json_project.springSecurityTest;
 
+import com.example.csv_json_project.springSecurity.DecryptionBatch;
 import com.example.csv_json_project.springSecurity.EncryptionUtil;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 @SpringBootTest
@@ -21,6 +26,19 @@ class EncryptionUtilTest {
         assertEquals(originalText, decryptedText);
     }
 
+    //Non-ASCII text decodes as UTF-8 whatever the platform charset is
+    @Test
+    void testEncryptAndDecryptUtf8() {
+        String originalText = "Zoë Ünal-Çelik 東京";
+        String encryptedText = EncryptionUtil.encrypt(originalText);
+        assertEquals(originalText, EncryptionUtil.decrypt(encryptedText));
+
+        DecryptionBatch batch = new DecryptionBatch();
+        int slot = batch.add(encryptedText);
+        EncryptionUtil.decryptBatch(batch);
+        assertEquals(originalText, batch.toString(slot));
+    }
+
     //Test the encryption of a null value.
     @Test
     void testEncryptNull() {
@@ -75,4 +93,110 @@ class EncryptionUtilTest {
         assertNotNull(decryptedText);
         assertEquals(originalText, decryptedText);
     }
-}
\ No newline at end of file
+
+    //A failed decryption must not break the cached cipher for the next call.
+    @Test
+    void testDecryptAfterFailure() {
+        String encryptedText = EncryptionUtil.encrypt("John");
+
+        assertNull(EncryptionUtil.decrypt("not encrypted"));
+        assertNull(EncryptionUtil.decrypt(encryptedText.substring(0, encryptedText.length() - 4)));
+        assertEquals("John", EncryptionUtil.decrypt(encryptedText));
+    }
+
+    //Each thread uses its own cipher.
+    @Test
+    void testConcurrentDecrypt() throws InterruptedException {
+        List<String> originals = new ArrayList<>();
+        List<String> encrypted = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            originals.add("Customer " + i);
+            encrypted.add(EncryptionUtil.encrypt("Customer " + i));
+        }
+
+        AtomicInteger mismatches = new AtomicInteger();
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            Thread thread = new Thread(() -> {
+                for (int round = 0; round < 50; round++) {
+                    for (int i = 0; i < encrypted.size(); i++) {
+                        if (!originals.get(i).equals(EncryptionUtil.decrypt(encrypted.get(i)))) {
+                            mismatches.incrementAndGet();
+                        }
+                    }
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(0, mismatches.get());
+    }
+
+    //Batch decryption gives the same plaintexts as decrypting field by field.
+    @Test
+    void testDecryptBatch() {
+        String longText = "x".repeat(1000);
+        DecryptionBatch batch = new DecryptionBatch();
+        batch.add(EncryptionUtil.encrypt("John"));
+        batch.add("not encrypted");
+        batch.add(EncryptionUtil.encrypt(""));
+        batch.add(EncryptionUtil.encrypt(longText));
+        batch.add(null);
+
+        EncryptionUtil.decryptBatch(batch);
+
+        assertEquals("John", batch.toString(0));
+        assertFalse(batch.isDecrypted(1));
+        assertNull(batch.toString(1));
+        assertTrue(batch.isBlank(1));
+        assertEquals("", batch.toString(2));
+        assertTrue(batch.isBlank(2));
+        assertEquals(longText, batch.toString(3));
+        assertNull(batch.toString(4));
+    }
+
+    //A cleared batch reuses its buffers for the next fields.
+    @Test
+    void testDecryptBatchReuse() {
+        DecryptionBatch batch = new DecryptionBatch();
+        for (int row = 0; row < 20; row++) {
+            batch.clear();
+            for (int field = 0; field < 12; field++) {
+                batch.add(EncryptionUtil.encrypt("row " + row + " field " + field));
+            }
+            EncryptionUtil.decryptBatch(batch);
+
+            assertEquals(12, batch.size());
+            for (int field = 0; field < 12; field++) {
+                assertEquals("row " + row + " field " + field, batch.toString(field));
+            }
+        }
+    }
+
+    @Test
+    void testCiphertextLength() {
+        assertEquals(32, EncryptionUtil.ciphertextLength(EncryptionUtil.encrypt("1234567890123456789012")));
+        assertEquals(16, EncryptionUtil.ciphertextLength(EncryptionUtil.encrypt("1234567890")));
+        // Not Base64, or not whole AES blocks
+        assertEquals(-1, EncryptionUtil.ciphertextLength("not encrypted"));
+        assertEquals(-1, EncryptionUtil.ciphertextLength("QUJD"));
+        assertEquals(-1, EncryptionUtil.ciphertextLength(""));
+    }
+
+    @Test
+    void testCanHoldChars() {
+        // 16 bytes hold 0 to 15 bytes of plaintext, 32 bytes 16 to 31
+        assertTrue(EncryptionUtil.canHoldChars(16, 10));
+        assertFalse(EncryptionUtil.canHoldChars(16, 22));
+        assertTrue(EncryptionUtil.canHoldChars(32, 22));
+        assertTrue(EncryptionUtil.canHoldChars(32, 10)); // 10 chars of up to 3 bytes each
+        assertFalse(EncryptionUtil.canHoldChars(64, 10));
+        // 22 two-byte chars encrypt to 48 bytes, still a possible length
+        String umlauts = "\u00c4".repeat(22);
+        assertTrue(EncryptionUtil.canHoldChars(EncryptionUtil.ciphertextLength(EncryptionUtil.encrypt(umlauts)), 22));
+    }
+}